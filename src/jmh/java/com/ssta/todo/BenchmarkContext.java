@@ -0,0 +1,116 @@
+package com.ssta.todo;
+
+import org.springframework.boot.Banner;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Starts the application without its web and Vaadin layers, against a fresh in-memory H2 database and data
+ * directory, seeded with a reproducible dataset
+ */
+final class BenchmarkContext implements AutoCloseable {
+
+  private static final String VAADIN_AUTO_CONFIGURATIONS = String.join(",",
+      "com.vaadin.flow.spring.SpringBootAutoConfiguration",
+      "com.vaadin.flow.spring.SpringSecurityAutoConfiguration",
+      "com.vaadin.flow.spring.VaadinScopesConfig",
+      "com.vaadin.hilla.EndpointController",
+      "com.vaadin.hilla.push.PushConfigurer",
+      "com.vaadin.hilla.ApplicationContextProvider",
+      "com.vaadin.hilla.crud.CrudConfiguration",
+      "com.vaadin.hilla.startup.EndpointRegistryInitializer",
+      "com.vaadin.hilla.startup.RouteUnifyingServiceInitListener",
+      "com.vaadin.hilla.route.RouteUtil",
+      "com.vaadin.hilla.route.RouteUnifyingConfiguration",
+      "com.vaadin.hilla.signals.config.SignalsConfiguration");
+
+  private static final int SEED_CHUNK_SIZE = 1000;
+
+  private final ConfigurableApplicationContext context;
+  private final List<Long> ids;
+  private final Path dataDirectory;
+
+  private BenchmarkContext(ConfigurableApplicationContext context, List<Long> ids, Path dataDirectory) {
+    this.context = context;
+    this.ids = ids;
+    this.dataDirectory = dataDirectory;
+  }
+
+  /**
+   * Start the application and seed it with datasetSize TodoItems
+   */
+  static BenchmarkContext start(int datasetSize, String... properties) {
+    Path dataDirectory;
+    try {
+      dataDirectory = Files.createTempDirectory("bench-data");
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    List<String> allProperties = new ArrayList<>(List.of(
+        "spring.datasource.url=jdbc:h2:mem:bench-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1",
+        "todo.event-log.directory=" + dataDirectory.resolve("events"),
+        "todo.store.memory.directory=" + dataDirectory.resolve("memory"),
+        "spring.autoconfigure.exclude=" + VAADIN_AUTO_CONFIGURATIONS,
+        "logging.level.root=WARN"));
+    allProperties.addAll(List.of(properties));
+
+    ConfigurableApplicationContext context = new SpringApplicationBuilder(TodoApplication.class)
+        .web(WebApplicationType.NONE)
+        .bannerMode(Banner.Mode.OFF)
+        .properties(allProperties.toArray(new String[0]))
+        .run();
+
+    TodoItemService service = context.getBean(TodoItemService.class);
+    Random random = new Random(42);
+    List<Long> ids = new ArrayList<>(datasetSize);
+    for (int from = 0; from < datasetSize; from += SEED_CHUNK_SIZE) {
+      List<TodoItem> chunk = new ArrayList<>(SEED_CHUNK_SIZE);
+      for (int i = from; i < Math.min(from + SEED_CHUNK_SIZE, datasetSize); i++) {
+        chunk.add(randomItem(random, i));
+      }
+      service.saveAll(chunk).forEach(item -> ids.add(item.getId()));
+    }
+    return new BenchmarkContext(context, ids, dataDirectory);
+  }
+
+  /**
+   * A TodoItem with a realistic spread of statuses, priorities and due dates, some of them null
+   */
+  static TodoItem randomItem(Random random, int index) {
+    TodoItem item = new TodoItem("Task " + index + " " + Long.toHexString(random.nextLong()));
+    item.setStatus(TodoStatus.values()[random.nextInt(TodoStatus.values().length)]);
+    item.setPriority(random.nextInt(5) == 0 ? null : 1 + random.nextInt(5));
+    item.setDueDate(random.nextInt(10) < 3 ? null : LocalDate.now().plusDays(random.nextInt(121) - 60));
+    return item;
+  }
+
+  <T> T getBean(Class<T> type) {
+    return context.getBean(type);
+  }
+
+  List<Long> ids() {
+    return ids;
+  }
+
+  @Override
+  public void close() {
+    context.close();
+    try {
+      FileSystemUtils.deleteRecursively(dataDirectory);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
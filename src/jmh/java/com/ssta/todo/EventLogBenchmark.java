@@ -0,0 +1,69 @@
+package com.ssta.todo;
+
+import com.ssta.todo.TodoItemChangedEvent.Change;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Appending a status change to the event log, outside a transaction so only the log itself is measured, and
+ * reading readSize entries with a Tailer from the start of a log of logSize entries.
+ */
+@State(Scope.Benchmark)
+public class EventLogBenchmark {
+
+  private static final TodoItemChangedEvent EVENT = TodoItemChangedEvent.of("default",
+      Change.statusChanged(1L, TodoStatus.TODO, TodoStatus.IN_PROGRESS, LocalDate.now(), 1L));
+
+  @Param({"100000"})
+  public int logSize;
+
+  @Param({"1000"})
+  public int readSize;
+
+  private BenchmarkContext context;
+  private TodoItemEventLog eventLog;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    context = BenchmarkContext.start(0);
+    eventLog = context.getBean(TodoItemEventLog.class);
+    for (int i = 0; i < logSize; i++) {
+      eventLog.onTodoItemChanged(EVENT);
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.Throughput)
+  @OutputTimeUnit(TimeUnit.SECONDS)
+  public long append() {
+    eventLog.onTodoItemChanged(EVENT);
+    return eventLog.lastSequence();
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.AverageTime)
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  public int tail(Blackhole blackhole) {
+    return eventLog.tail(0).poll(entry -> {
+      blackhole.consume(entry);
+      return true;
+    }, readSize);
+  }
+}
@@ -0,0 +1,73 @@
+package com.ssta.todo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Filter and sort latency with and without the todo_items indexes
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class FilterSortBenchmark {
+
+  private static final List<TodoSortOrder> DEFAULT_GRID_SORT = List.of(
+      TodoSortOrder.asc(TodoSortField.DUE_DATE),
+      TodoSortOrder.asc(TodoSortField.PRIORITY));
+  private static final Set<TodoStatus> IN_PROGRESS = EnumSet.of(TodoStatus.IN_PROGRESS);
+
+  @Param({"1000"})
+  public int datasetSize;
+
+  @Param({"true", "false"})
+  public boolean indexed;
+
+  private BenchmarkContext context;
+  private TodoItemService service;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    context = BenchmarkContext.start(datasetSize);
+    service = context.getBean(TodoItemService.class);
+    if (!indexed) {
+      JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+      jdbcTemplate.execute("DROP INDEX idx_todo_items_owner_status_due_date");
+      jdbcTemplate.execute("DROP INDEX idx_todo_items_owner_updated_date");
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public List<TodoItem> filterAndSortFirstPage() {
+    return service.findPage(IN_PROGRESS, DEFAULT_GRID_SORT, 0, 50);
+  }
+
+  @Benchmark
+  public long countByStatus() {
+    return service.countByStatus(IN_PROGRESS);
+  }
+
+  @Benchmark
+  public List<TodoItem> findUpdatedSince() {
+    return service.findUpdatedSince(LocalDateTime.now().minusMinutes(1), 50);
+  }
+}
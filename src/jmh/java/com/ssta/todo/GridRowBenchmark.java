@@ -0,0 +1,100 @@
+package com.ssta.todo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Reference;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Loading grid pages as entities compared with TodoItemRow projections.
+ * <p>
+ * Every item gets detailed notes, so the entities carry what a real board's would. Run with the gc profiler for
+ * the bytes allocated per load; the heap retained by one load of every row is printed once per trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class GridRowBenchmark {
+
+  private static final List<TodoSortOrder> DEFAULT_GRID_SORT = List.of(
+      TodoSortOrder.asc(TodoSortField.DUE_DATE),
+      TodoSortOrder.asc(TodoSortField.PRIORITY));
+  private static final Set<TodoStatus> ALL = EnumSet.allOf(TodoStatus.class);
+
+  @Param({"100000"})
+  public int datasetSize;
+
+  private BenchmarkContext context;
+  private TodoItemService service;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    context = BenchmarkContext.start(datasetSize);
+    service = context.getBean(TodoItemService.class);
+    context.getBean(JdbcTemplate.class)
+        .update("update todo_items set detailed_notes = left(repeat('Notes for ' || description || '. ', 10), 400)");
+
+    long entityBytes = retainedBytes(this::loadEntities);
+    long rowBytes = retainedBytes(this::loadRows);
+    System.out.printf("%nRetained heap for %d rows: entities %,d bytes, rows %,d bytes%n",
+        datasetSize, entityBytes, rowBytes);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public List<TodoItem> loadEntities() {
+    return service.findPage(ALL, DEFAULT_GRID_SORT, 0, datasetSize);
+  }
+
+  @Benchmark
+  public List<TodoItemRow> loadRows() {
+    return service.findRowPage(ALL, DEFAULT_GRID_SORT, 0, datasetSize);
+  }
+
+  @Benchmark
+  public List<TodoItem> firstPageOfEntities() {
+    return service.findPage(ALL, DEFAULT_GRID_SORT, 0, 50);
+  }
+
+  @Benchmark
+  public List<TodoItemRow> firstPageOfRows() {
+    return service.findRowPage(ALL, DEFAULT_GRID_SORT, 0, 50);
+  }
+
+  /**
+   * Growth of the used heap, after garbage collection, from holding the result of one load
+   */
+  private static long retainedBytes(Supplier<List<?>> load) {
+    long before = usedHeapAfterGc();
+    List<?> rows = load.get();
+    long after = usedHeapAfterGc();
+    Reference.reachabilityFence(rows);
+    return after - before;
+  }
+
+  private static long usedHeapAfterGc() {
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+  }
+}
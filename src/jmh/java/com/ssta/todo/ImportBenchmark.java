@@ -0,0 +1,113 @@
+package com.ssta.todo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bulk import of datasetSize JSON lines rows, and the validation of a single item on its own.
+ * <p>
+ * One row in a hundred is invalid, so the import also exercises rejection. Run with the gc profiler to see that
+ * validating an item, valid or not, allocates nothing.
+ */
+@State(Scope.Benchmark)
+public class ImportBenchmark {
+
+  private static final int INVALID_EVERY = 100;
+
+  @Param({"1000000"})
+  public int datasetSize;
+
+  private BenchmarkContext context;
+  private TodoItemTransferService transferService;
+  private JdbcTemplate jdbcTemplate;
+  private byte[] input;
+
+  private final TodoItemValidator.Result validation = new TodoItemValidator.Result();
+  private TodoItem validItem;
+  private TodoItem invalidItem;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    context = BenchmarkContext.start(0);
+    transferService = context.getBean(TodoItemTransferService.class);
+    jdbcTemplate = context.getBean(JdbcTemplate.class);
+
+    Random random = new Random(42);
+    StringBuilder rows = new StringBuilder();
+    for (int i = 0; i < datasetSize; i++) {
+      TodoItem item = BenchmarkContext.randomItem(random, i);
+      if (i % INVALID_EVERY == 0) {
+        item.setPriority(9);
+      }
+      rows.append("{\"description\":\"").append(item.getDescription())
+          .append("\",\"status\":\"").append(item.getStatus()).append('"');
+      if (item.getPriority() != null) {
+        rows.append(",\"priority\":").append(item.getPriority());
+      }
+      if (item.getDueDate() != null) {
+        rows.append(",\"dueDate\":\"").append(item.getDueDate()).append('"');
+      }
+      rows.append("}\n");
+    }
+    input = rows.toString().getBytes(StandardCharsets.UTF_8);
+
+    validItem = BenchmarkContext.randomItem(random, 0);
+    validItem.setPriority(3);
+    invalidItem = BenchmarkContext.randomItem(random, 1);
+    invalidItem.setDescription(" ");
+    invalidItem.setPriority(0);
+  }
+
+  /**
+   * Empties the tables before each import, so every import starts from the same state
+   */
+  @State(Scope.Benchmark)
+  public static class EmptyTables {
+
+    @Setup(Level.Invocation)
+    public void truncate(ImportBenchmark benchmark) {
+      benchmark.jdbcTemplate.execute("TRUNCATE TABLE todo_item_terms");
+      benchmark.jdbcTemplate.execute("TRUNCATE TABLE todo_items");
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  @OutputTimeUnit(TimeUnit.SECONDS)
+  public TodoItemTransferService.ImportResult importItems(EmptyTables emptyTables) {
+    return transferService.importItems(new ByteArrayInputStream(input), TodoItemTransferService.Format.JSON_LINES);
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.AverageTime)
+  @OutputTimeUnit(TimeUnit.NANOSECONDS)
+  public boolean validateValidItem() {
+    return TodoItemValidator.validate(validItem, validation).isValid();
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.AverageTime)
+  @OutputTimeUnit(TimeUnit.NANOSECONDS)
+  public boolean validateInvalidItem() {
+    return TodoItemValidator.validate(invalidItem, validation).isValid();
+  }
+}
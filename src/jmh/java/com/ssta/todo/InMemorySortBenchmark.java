@@ -0,0 +1,82 @@
+package com.ssta.todo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory sorting in the default grid order, without a database: comparators against packed sort keys
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class InMemorySortBenchmark {
+
+  private static final List<TodoSortOrder> DEFAULT_GRID_SORT = List.of(
+      TodoSortOrder.asc(TodoSortField.DUE_DATE),
+      TodoSortOrder.asc(TodoSortField.PRIORITY));
+
+  // The due date comparator as it was, reading the clock and checking for overdue dates on every comparison
+  private static final Comparator<TodoItem> CLOCK_READING_DUE_DATE = (item1, item2) -> {
+    LocalDate today = LocalDate.now();
+    LocalDate date1 = item1.getDueDate();
+    LocalDate date2 = item2.getDueDate();
+    if (date1 == null && date2 == null) {return 0;}
+    if (date1 == null) {return 1;}
+    if (date2 == null) {return -1;}
+    boolean overdue1 = date1.isBefore(today);
+    boolean overdue2 = date2.isBefore(today);
+    if (overdue1 == overdue2) {
+      return date1.compareTo(date2);
+    }
+    return overdue1 ? -1 : 1;
+  };
+
+  @Param({"100000"})
+  public int datasetSize;
+
+  private List<TodoItem> items;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    Random random = new Random(42);
+    items = new ArrayList<>(datasetSize);
+    for (int i = 0; i < datasetSize; i++) {
+      TodoItem item = BenchmarkContext.randomItem(random, i);
+      item.setId((long) i + 1);
+      items.add(item);
+    }
+  }
+
+  @Benchmark
+  public List<TodoItem> clockReadingComparator() {
+    List<TodoItem> sorted = new ArrayList<>(items);
+    sorted.sort(CLOCK_READING_DUE_DATE.thenComparing(TodoItemComparators.PRIORITY));
+    return sorted;
+  }
+
+  @Benchmark
+  public List<TodoItem> comparator() {
+    List<TodoItem> sorted = new ArrayList<>(items);
+    sorted.sort(TodoItemComparators.DUE_DATE.thenComparing(TodoItemComparators.PRIORITY));
+    return sorted;
+  }
+
+  @Benchmark
+  public List<TodoItem> sortKeys() {
+    return TodoItemSorter.sort(items, DEFAULT_GRID_SORT);
+  }
+}
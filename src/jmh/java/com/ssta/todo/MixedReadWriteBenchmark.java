@@ -0,0 +1,86 @@
+package com.ssta.todo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of grid reads and status changes running concurrently, six readers to two writers, with the reads in
+ * read-only transactions as the service runs them or in read-write transactions as it used to.
+ * <p>
+ * Each read is wrapped in a transaction of the chosen kind, which the service's own transaction joins.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class MixedReadWriteBenchmark {
+
+  private static final List<TodoSortOrder> DEFAULT_GRID_SORT = List.of(
+      TodoSortOrder.asc(TodoSortField.DUE_DATE),
+      TodoSortOrder.asc(TodoSortField.PRIORITY));
+  private static final Set<TodoStatus> OPEN_STATUSES = EnumSet.of(TodoStatus.TODO, TodoStatus.IN_PROGRESS);
+
+  @Param({"10000"})
+  public int datasetSize;
+
+  @Param({"true", "false"})
+  public boolean readOnly;
+
+  private BenchmarkContext context;
+  private TodoItemService service;
+  private TransactionTemplate readTransaction;
+  private List<Long> ids;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    context = BenchmarkContext.start(datasetSize);
+    service = context.getBean(TodoItemService.class);
+    readTransaction = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+    readTransaction.setReadOnly(readOnly);
+    ids = context.ids();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  @Group("mixed")
+  @GroupThreads(3)
+  public List<TodoItem> readPage() {
+    return readTransaction.execute(status -> service.findPage(OPEN_STATUSES, DEFAULT_GRID_SORT, 0, 50));
+  }
+
+  @Benchmark
+  @Group("mixed")
+  @GroupThreads(3)
+  public TodoItem readItem() {
+    Long id = ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+    return readTransaction.execute(status -> service.findById(id).orElse(null));
+  }
+
+  @Benchmark
+  @Group("mixed")
+  @GroupThreads(2)
+  public TodoStatus cycleStatus() {
+    return service.cycleStatus(ids.get(ThreadLocalRandom.current().nextInt(ids.size())));
+  }
+}
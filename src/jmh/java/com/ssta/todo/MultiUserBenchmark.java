@@ -0,0 +1,113 @@
+package com.ssta.todo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of one user's grid queries as the total number of rows shared between the users grows.
+ * <p>
+ * The measured user always has the same number of items, spread evenly through the table between the other users'
+ * items as they would be in a shared instance, so any growth in latency with datasetSize comes from the other users'
+ * rows. Rows are inserted with SQL rather than through the service, and into a file database, so the dataset can
+ * reach 10M rows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class MultiUserBenchmark {
+
+  private static final String MEASURED_USER = "user-0";
+  private static final int MEASURED_USER_ITEMS = 1000;
+  private static final int INSERT_CHUNK_SIZE = 100_000;
+  private static final List<TodoSortOrder> DEFAULT_GRID_SORT = List.of(
+      TodoSortOrder.asc(TodoSortField.DUE_DATE),
+      TodoSortOrder.asc(TodoSortField.PRIORITY));
+  private static final Set<TodoStatus> OPEN = EnumSet.of(TodoStatus.TODO, TodoStatus.IN_PROGRESS);
+
+  // Every stride-th row belongs to the measured user, the rest to the other users in turn. Statuses, priorities and
+  // due dates come from a multiplicative hash of the ID, so every user gets a similar, reproducible spread.
+  private static final String INSERT_ROWS = "insert into todo_items"
+      + " (id, owner_id, description, status, priority, due_date, created_date, updated_date, version)"
+      + " select x,"
+      + " case when mod(x, ?) = 0 then '" + MEASURED_USER + "' else 'user-' || (1 + mod(x, ?)) end,"
+      + " 'Task ' || x,"
+      + " case mod(h / 7, 3) when 0 then 'TODO' when 1 then 'IN_PROGRESS' else 'COMPLETE' end,"
+      + " nullif(mod(h / 31, 6), 0),"
+      + " case when mod(h / 191, 10) < 3 then null else dateadd(day, mod(h / 1931, 121) - 60, current_date) end,"
+      + " current_timestamp, current_timestamp, 0"
+      + " from (select x, mod(x * 2654435761, 4294967296) h from system_range(?, ?))";
+
+  @Param({"100000"})
+  public int datasetSize;
+
+  @Param({"1000"})
+  public int users;
+
+  private Path databaseDirectory;
+  private BenchmarkContext context;
+  private TodoItemService service;
+  private CurrentUser currentUser;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    databaseDirectory = Files.createTempDirectory("todo-multi-user-bench");
+    context = BenchmarkContext.start(0,
+        "spring.datasource.url=jdbc:h2:file:" + databaseDirectory.resolve("todoapp").toAbsolutePath());
+    service = context.getBean(TodoItemService.class);
+    currentUser = context.getBean(CurrentUser.class);
+
+    JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+    int stride = Math.max(1, datasetSize / MEASURED_USER_ITEMS);
+    for (long from = 1; from <= datasetSize; from += INSERT_CHUNK_SIZE) {
+      long to = Math.min(from + INSERT_CHUNK_SIZE - 1, datasetSize);
+      jdbcTemplate.update(INSERT_ROWS, stride, users - 1, from, to);
+    }
+    jdbcTemplate.execute("ALTER SEQUENCE todo_items_seq RESTART WITH " + (datasetSize + 1));
+    jdbcTemplate.execute("ANALYZE");
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    context.close();
+    FileSystemUtils.deleteRecursively(databaseDirectory);
+  }
+
+  @Benchmark
+  public List<TodoItem> filterAndSortFirstPage() {
+    return currentUser.callAs(MEASURED_USER, () -> service.findPage(OPEN, DEFAULT_GRID_SORT, 0, 50));
+  }
+
+  @Benchmark
+  public long countByStatus() {
+    return currentUser.callAs(MEASURED_USER, () -> service.countByStatus(OPEN));
+  }
+
+  @Benchmark
+  public List<TodoItem> findPageAfter() {
+    return currentUser.callAs(MEASURED_USER,
+        () -> service.findPageAfter(EnumSet.allOf(TodoStatus.class), null, 50));
+  }
+
+  @Benchmark
+  public List<TodoItem> findTopN() {
+    return currentUser.callAs(MEASURED_USER, () -> service.findTopN(DEFAULT_GRID_SORT, 10));
+  }
+}
@@ -0,0 +1,101 @@
+package com.ssta.todo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The same TodoItemService calls against the database store and the in-memory store, through the service so both
+ * include its transactions, validation and events.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class StoreComparisonBenchmark {
+
+  private static final List<TodoSortOrder> DEFAULT_GRID_SORT = List.of(
+      TodoSortOrder.asc(TodoSortField.DUE_DATE),
+      TodoSortOrder.asc(TodoSortField.PRIORITY));
+  private static final List<TodoSortOrder> BY_DESCRIPTION = List.of(TodoSortOrder.asc(TodoSortField.DESCRIPTION));
+  private static final Set<TodoStatus> ALL = EnumSet.allOf(TodoStatus.class);
+  private static final Set<TodoStatus> OPEN = EnumSet.of(TodoStatus.TODO, TodoStatus.IN_PROGRESS);
+
+  @Param({"jpa", "memory"})
+  public String store;
+
+  @Param({"100000"})
+  public int datasetSize;
+
+  private BenchmarkContext context;
+  private TodoItemService service;
+  private List<Long> ids;
+  private TodoItemCursor middle;
+  private final Random random = new Random(42);
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    context = BenchmarkContext.start(datasetSize, "todo.store=" + store);
+    service = context.getBean(TodoItemService.class);
+    ids = context.ids();
+    TodoItem item = service.findPage(OPEN, DEFAULT_GRID_SORT, datasetSize / 4, 1).get(0);
+    middle = new TodoItemCursor(item.getDueDate(), item.getPriority(), item.getId());
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public Optional<TodoItem> findById() {
+    return service.findById(randomId());
+  }
+
+  @Benchmark
+  public List<TodoItemRow> firstRowPage() {
+    return service.findRowPage(OPEN, DEFAULT_GRID_SORT, 0, 50);
+  }
+
+  @Benchmark
+  public List<TodoItemRow> deepRowPage() {
+    return service.findRowPage(ALL, DEFAULT_GRID_SORT, datasetSize / 2, 50);
+  }
+
+  @Benchmark
+  public List<TodoItemRow> rowPageByDescription() {
+    return service.findRowPage(ALL, BY_DESCRIPTION, 0, 50);
+  }
+
+  @Benchmark
+  public List<TodoItem> pageAfter() {
+    return service.findPageAfter(OPEN, middle, 50);
+  }
+
+  @Benchmark
+  public List<TodoItemRow> search() {
+    return service.searchRowPage(ALL, "task a", 0, 50);
+  }
+
+  @Benchmark
+  public TodoStatus cycleStatus() {
+    return service.cycleStatus(randomId());
+  }
+
+  private Long randomId() {
+    return ids.get(random.nextInt(ids.size()));
+  }
+}
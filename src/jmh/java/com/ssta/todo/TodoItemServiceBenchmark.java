@@ -0,0 +1,116 @@
+package com.ssta.todo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of the TodoItemService read and write paths used by the grid
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TodoItemServiceBenchmark {
+
+  private static final Comparator<TodoItem> DEFAULT_GRID_ORDER =
+      TodoItemComparators.DUE_DATE.thenComparing(TodoItemComparators.PRIORITY);
+  private static final List<TodoSortOrder> DEFAULT_GRID_SORT = List.of(
+      TodoSortOrder.asc(TodoSortField.DUE_DATE),
+      TodoSortOrder.asc(TodoSortField.PRIORITY));
+  private static final Set<TodoStatus> OPEN_STATUSES = EnumSet.of(TodoStatus.TODO, TodoStatus.IN_PROGRESS);
+
+  @Param({"1000"})
+  public int datasetSize;
+
+  private BenchmarkContext context;
+  private TodoItemService service;
+  private TodoItem editedItem;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    context = BenchmarkContext.start(datasetSize);
+    service = context.getBean(TodoItemService.class);
+    editedItem = service.findById(context.ids().get(0)).orElseThrow();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public List<TodoItem> findAll() {
+    return service.findAll();
+  }
+
+  @Benchmark
+  public List<TodoItem> findByStatus() {
+    return service.findByStatus(TodoStatus.TODO, TodoStatus.IN_PROGRESS);
+  }
+
+  // Baseline for findAllSorted: the whole table sorted in memory
+  @Benchmark
+  @SuppressWarnings("deprecation")
+  public List<TodoItem> findAllSortedInMemory() {
+    return service.findAllSorted(DEFAULT_GRID_ORDER);
+  }
+
+  @Benchmark
+  public List<TodoItem> findAllSorted() {
+    return service.findAllSorted(DEFAULT_GRID_SORT);
+  }
+
+  @Benchmark
+  public List<TodoItem> findTopN() {
+    return service.findTopN(DEFAULT_GRID_SORT, 50);
+  }
+
+  @Benchmark
+  public List<TodoItem> findFirstPage() {
+    return service.findPage(OPEN_STATUSES, DEFAULT_GRID_SORT, 0, 50);
+  }
+
+  @Benchmark
+  public long countByStatus() {
+    return service.countByStatus(OPEN_STATUSES);
+  }
+
+  @Benchmark
+  public List<TodoItem> searchFirstPage() {
+    // Every item contains "task", so this ranks the whole table; the prefix narrows it to about one item in ten
+    return service.searchPage(OPEN_STATUSES, "task 12", 0, 50);
+  }
+
+  @Benchmark
+  public long countSearch() {
+    return service.countSearch(OPEN_STATUSES, "task 12");
+  }
+
+  @Benchmark
+  public TodoItem save() {
+    editedItem.setDescription("Edited " + System.nanoTime());
+    // Keep the saved copy so the next save carries the current version
+    editedItem = service.save(editedItem);
+    return editedItem;
+  }
+
+  @Benchmark
+  public TodoStatus cycleStatus() {
+    List<Long> ids = context.ids();
+    return service.cycleStatus(ids.get(ThreadLocalRandom.current().nextInt(ids.size())));
+  }
+}
@@ -0,0 +1,193 @@
+package com.ssta.todo;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Closed-loop HTTP load test against a running instance of the application.
+ * <p>
+ * Each simulated user requests the paths in turn, keeping its own session cookie, and waits the think time between
+ * requests. Requests sent during the warmup are not measured. Prints throughput and latency percentiles per path.
+ * If loadTest.userHeader is set, each simulated user sends it with its own user ID (user-0, user-1 and so on), so
+ * against an instance configured with the same todo.users.header every simulated user works on its own items.
+ * <p>
+ * Settings are system properties: loadTest.url, loadTest.users, loadTest.paths (comma separated),
+ * loadTest.durationSeconds, loadTest.warmupSeconds, loadTest.thinkTimeMillis and loadTest.userHeader.
+ */
+public final class LoadTest {
+
+  private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+  private LoadTest() {
+  }
+
+  public static void main(String[] args) throws InterruptedException {
+    URI baseUri = URI.create(System.getProperty("loadTest.url", "http://localhost:8080"));
+    int users = Integer.getInteger("loadTest.users", 1000);
+    List<String> paths = Arrays.stream(System.getProperty("loadTest.paths", "/").split(","))
+        .map(String::trim)
+        .filter(path -> !path.isEmpty())
+        .toList();
+    Duration duration = Duration.ofSeconds(Long.getLong("loadTest.durationSeconds", 60));
+    Duration warmup = Duration.ofSeconds(Long.getLong("loadTest.warmupSeconds", 10));
+    Duration thinkTime = Duration.ofMillis(Long.getLong("loadTest.thinkTimeMillis", 0));
+    String userHeader = System.getProperty("loadTest.userHeader", "");
+
+    Map<String, Results> results = new LinkedHashMap<>();
+    paths.forEach(path -> results.put(path, new Results()));
+
+    System.out.printf("Load test: %d users against %s for %ds after a %ds warmup, think time %dms%n",
+        users, baseUri, duration.toSeconds(), warmup.toSeconds(), thinkTime.toMillis());
+
+    // One virtual thread per user, so the client side is never short of threads
+    try (HttpClient client = HttpClient.newBuilder()
+             .version(HttpClient.Version.HTTP_1_1)
+             .connectTimeout(REQUEST_TIMEOUT)
+             .build();
+         ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      long measureFrom = System.nanoTime() + warmup.toNanos();
+      long measureUntil = measureFrom + duration.toNanos();
+      for (int user = 0; user < users; user++) {
+        int firstPath = user % paths.size();
+        String userId = "user-" + user;
+        executor.submit(() -> runUser(client, baseUri, paths, firstPath, userHeader, userId, thinkTime,
+            measureFrom, measureUntil, results));
+      }
+      executor.shutdown();
+      executor.awaitTermination(warmup.plus(duration).plus(REQUEST_TIMEOUT).toSeconds(), TimeUnit.SECONDS);
+    }
+
+    printResults(results, duration);
+  }
+
+  private static void runUser(HttpClient client, URI baseUri, List<String> paths, int firstPath, String userHeader,
+                              String userId, Duration thinkTime, long measureFrom, long measureUntil,
+                              Map<String, Results> results) {
+    String sessionCookie = null;
+    for (int i = firstPath; System.nanoTime() < measureUntil; i++) {
+      String path = paths.get(i % paths.size());
+      HttpRequest.Builder request = HttpRequest.newBuilder(baseUri.resolve(path))
+          .timeout(REQUEST_TIMEOUT)
+          .GET();
+      if (sessionCookie != null) {
+        request.header("Cookie", sessionCookie);
+      }
+      if (!userHeader.isEmpty()) {
+        request.header(userHeader, userId);
+      }
+
+      long start = System.nanoTime();
+      String error = null;
+      try {
+        HttpResponse<Void> response = client.send(request.build(), HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() >= 400) {
+          error = "HTTP " + response.statusCode();
+        }
+        sessionCookie = response.headers().firstValue("Set-Cookie")
+            .map(cookie -> cookie.split(";", 2)[0])
+            .orElse(sessionCookie);
+      } catch (IOException e) {
+        error = e.toString();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+      long end = System.nanoTime();
+
+      if (start >= measureFrom && end <= measureUntil) {
+        results.get(path).record(end - start, error);
+      }
+
+      if (!thinkTime.isZero()) {
+        try {
+          Thread.sleep(thinkTime);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return;
+        }
+      }
+    }
+  }
+
+  private static void printResults(Map<String, Results> results, Duration duration) {
+    System.out.printf("%-40s %10s %8s %10s %10s %10s %10s%n",
+        "path", "requests", "errors", "req/s", "p50 ms", "p99 ms", "max ms");
+    Results total = new Results();
+    results.forEach((path, pathResults) -> {
+      printRow(path, pathResults, duration);
+      total.addAll(pathResults);
+    });
+    printRow("total", total, duration);
+    results.forEach((path, pathResults) -> {
+      if (pathResults.firstError() != null) {
+        System.out.printf("First error for %s: %s%n", path, pathResults.firstError());
+      }
+    });
+  }
+
+  private static void printRow(String label, Results results, Duration duration) {
+    long[] latencies = results.sortedLatencies();
+    System.out.printf("%-40s %10d %8d %10.1f %10.1f %10.1f %10.1f%n",
+        label, latencies.length, results.errors(), latencies.length / (double) duration.toSeconds(),
+        percentileMillis(latencies, 0.50), percentileMillis(latencies, 0.99), percentileMillis(latencies, 1.0));
+  }
+
+  private static double percentileMillis(long[] sortedLatencies, double percentile) {
+    if (sortedLatencies.length == 0) {
+      return 0;
+    }
+    int index = (int) Math.ceil(percentile * sortedLatencies.length) - 1;
+    return sortedLatencies[Math.max(index, 0)] / 1_000_000.0;
+  }
+
+  /**
+   * Latencies in nanoseconds and errors for one path
+   */
+  private static final class Results {
+
+    private final List<Long> latencies = new ArrayList<>();
+    private long errors;
+    private String firstError;
+
+    synchronized void record(long latency, String error) {
+      latencies.add(latency);
+      if (error != null) {
+        errors++;
+        if (firstError == null) {
+          firstError = error;
+        }
+      }
+    }
+
+    synchronized void addAll(Results other) {
+      synchronized (other) {
+        latencies.addAll(other.latencies);
+        errors += other.errors;
+      }
+    }
+
+    synchronized long errors() {
+      return errors;
+    }
+
+    synchronized String firstError() {
+      return firstError;
+    }
+
+    synchronized long[] sortedLatencies() {
+      return latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+    }
+  }
+}
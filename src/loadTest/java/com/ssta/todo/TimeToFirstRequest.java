@@ -0,0 +1,87 @@
+package com.ssta.todo;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long the application takes from launch until it answers its first HTTP request.
+ * <p>
+ * Each run starts the command, polls the URL until it responds without an error, then stops the application and
+ * waits for it to exit. The command's output is discarded. Prints each run and the median, so startup modes can be
+ * compared by running this once per mode with the same runs.
+ * <p>
+ * Settings are system properties: startupTest.command (space separated, default runs the boot jar), startupTest.url
+ * and startupTest.runs.
+ */
+public final class TimeToFirstRequest {
+
+  private static final Duration POLL_INTERVAL = Duration.ofMillis(20);
+  private static final Duration TIMEOUT = Duration.ofMinutes(5);
+
+  private TimeToFirstRequest() {
+  }
+
+  public static void main(String[] args) throws IOException, InterruptedException {
+    List<String> command = Arrays.stream(System.getProperty("startupTest.command",
+            "java -jar build/libs/ssta-todo-1.0-SNAPSHOT.jar").split(" "))
+        .filter(part -> !part.isEmpty())
+        .toList();
+    URI uri = URI.create(System.getProperty("startupTest.url", "http://localhost:8080/"));
+    int runs = Integer.getInteger("startupTest.runs", 5);
+
+    System.out.printf("Time to first request: %d runs of %s against %s%n", runs, String.join(" ", command), uri);
+
+    List<Long> millis = new ArrayList<>();
+    try (HttpClient client = HttpClient.newBuilder().connectTimeout(POLL_INTERVAL.multipliedBy(50)).build()) {
+      for (int run = 1; run <= runs; run++) {
+        long elapsed = measure(command, client, uri);
+        millis.add(elapsed);
+        System.out.printf("Run %d: %d ms%n", run, elapsed);
+      }
+    }
+
+    List<Long> sorted = millis.stream().sorted().toList();
+    System.out.printf("Median: %d ms, min %d ms, max %d ms%n",
+        sorted.get(sorted.size() / 2), sorted.get(0), sorted.get(sorted.size() - 1));
+  }
+
+  private static long measure(List<String> command, HttpClient client, URI uri)
+      throws IOException, InterruptedException {
+    long start = System.nanoTime();
+    Process process = new ProcessBuilder(command)
+        .redirectErrorStream(true)
+        .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+        .start();
+    try {
+      HttpRequest request = HttpRequest.newBuilder(uri).timeout(TIMEOUT).GET().build();
+      while (System.nanoTime() - start < TIMEOUT.toNanos()) {
+        if (!process.isAlive()) {
+          throw new IllegalStateException("Application exited with " + process.exitValue() + " before responding");
+        }
+        try {
+          if (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() < 400) {
+            return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+          }
+        } catch (IOException e) {
+          // Not listening yet
+        }
+        Thread.sleep(POLL_INTERVAL);
+      }
+      throw new IllegalStateException("Application did not respond within " + TIMEOUT);
+    } finally {
+      // Graceful stop, so the next run doesn't find the database locked
+      process.destroy();
+      if (!process.waitFor(TIMEOUT.toSeconds(), TimeUnit.SECONDS)) {
+        process.destroyForcibly().waitFor();
+      }
+    }
+  }
+}
@@ -0,0 +1,11 @@
+package com.ssta.todo;
+
+import com.vaadin.flow.component.page.AppShellConfigurator;
+import com.vaadin.flow.component.page.Push;
+
+/**
+ * Application shell, enabling server push so changes made in one session appear in all open views
+ */
+@Push
+public class AppShell implements AppShellConfigurator {
+}
@@ -0,0 +1,111 @@
+package com.ssta.todo;
+
+import com.vaadin.flow.server.VaadinRequest;
+import com.vaadin.flow.server.VaadinService;
+import com.vaadin.flow.server.VaadinSession;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * The user whose TodoItems and preferences are being worked on.
+ * <p>
+ * A request's user is its authenticated principal if the servlet container authenticated it, otherwise the value of
+ * the header configured as todo.users.header, which an authenticating reverse proxy sets. Without either, requests
+ * belong to the default user, so a single-user installation works as before. Only enable the header when every
+ * request comes through such a proxy, as clients could otherwise pick any user.
+ * <p>
+ * A Vaadin session keeps the user it was opened by, since UI events can arrive over the push connection rather
+ * than in a request. Work outside a request, such as jobs on the task scheduler, runs as the default user unless
+ * wrapped in {@link #callAs}.
+ */
+@Component
+public class CurrentUser {
+
+  public static final String DEFAULT_USER = "default";
+  public static final int MAX_LENGTH = 100;
+
+  private static final String SESSION_ATTRIBUTE = CurrentUser.class.getName();
+  private static final ThreadLocal<String> callingAs = new ThreadLocal<>();
+
+  private final String header;
+
+  public CurrentUser(@Value("${todo.users.header:}") String header) {
+    this.header = header;
+  }
+
+  /**
+   * The ID of the current user
+   */
+  public String getId() {
+    String userId = callingAs.get();
+    if (userId != null) {
+      return userId;
+    }
+
+    VaadinSession session = VaadinSession.getCurrent();
+    if (session != null) {
+      userId = (String) session.getAttribute(SESSION_ATTRIBUTE);
+      if (userId == null) {
+        VaadinRequest request = VaadinService.getCurrentRequest();
+        userId = request == null ? DEFAULT_USER : resolve(request.getRemoteUser(), request::getHeader);
+        session.setAttribute(SESSION_ATTRIBUTE, userId);
+      }
+      return userId;
+    }
+
+    RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+    if (attributes instanceof ServletRequestAttributes servletAttributes) {
+      HttpServletRequest request = servletAttributes.getRequest();
+      return resolve(request.getRemoteUser(), request::getHeader);
+    }
+    return DEFAULT_USER;
+  }
+
+  /**
+   * Run the action as the given user on this thread, for work that outlives the request that started it
+   */
+  public <T> T callAs(String userId, Supplier<T> action) {
+    String previous = callingAs.get();
+    callingAs.set(normalize(userId));
+    try {
+      return action.get();
+    } finally {
+      if (previous == null) {
+        callingAs.remove();
+      } else {
+        callingAs.set(previous);
+      }
+    }
+  }
+
+  private String resolve(String remoteUser, Function<String, String> headers) {
+    if (remoteUser != null && !remoteUser.isBlank()) {
+      return normalize(remoteUser);
+    }
+    if (!header.isEmpty()) {
+      String headerUser = headers.apply(header);
+      if (headerUser != null && !headerUser.isBlank()) {
+        return normalize(headerUser);
+      }
+    }
+    return DEFAULT_USER;
+  }
+
+  private static String normalize(String userId) {
+    if (userId == null || userId.isBlank()) {
+      throw new IllegalArgumentException("User ID is required");
+    }
+    String trimmed = userId.trim();
+    if (trimmed.length() > MAX_LENGTH) {
+      throw new IllegalArgumentException("User ID must not exceed " + MAX_LENGTH + " characters");
+    }
+    return trimmed;
+  }
+}
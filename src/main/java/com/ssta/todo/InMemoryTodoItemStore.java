@@ -0,0 +1,1171 @@
+package com.ssta.todo;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Keeps TodoItems in memory when todo.store is memory, for boards that are read far more often than changed.
+ * <p>
+ * Items are held in a {@link LongHashMap} by ID. Each owner has a map per status, serving status filters and counts,
+ * and a set sorted by due date, priority and ID, serving the default grid order and keyset paging without sorting;
+ * other orders sort the owner's items in the statuses asked for with {@link TodoItemSorter}. Search uses an in-memory
+ * term index with the weights {@link TodoItemService} computes, so results rank as they do in the database.
+ * <p>
+ * Stored items are replaced rather than changed, so readers and snapshots can keep using them. A write takes the
+ * store's write lock until its transaction completes, keeping the previous state of whatever it changes: on commit
+ * the new state of each changed item is appended to the write-ahead log, and on rollback the previous state is put
+ * back. Reads wait for write transactions in progress. After commit listeners run before the write lock is
+ * released, so they must never wait for another thread that reads the store, such as one holding a lock they need
+ * while it loads. Every todo.store.memory.snapshot-interval, and at shutdown, the log is rolled over and all items
+ * are written to a compact snapshot, after which the older logs are deleted. If a commit fails to reach the log,
+ * whatever part of it was written is cut off and the next snapshot is written even if nothing else changed. At
+ * startup the latest snapshot is loaded, the logs written after it are replayed and the search index is rebuilt.
+ */
+@Component
+@ConditionalOnProperty(name = "todo.store", havingValue = "memory")
+class InMemoryTodoItemStore implements TodoItemStore {
+
+  private static final Logger logger = LoggerFactory.getLogger(InMemoryTodoItemStore.class);
+  // The order of the due date index, which is the grid's default order and the keyset paging order
+  private static final Comparator<TodoItem> DUE_DATE_ORDER = TodoItemComparators.DUE_DATE
+      .thenComparing(TodoItemComparators.PRIORITY)
+      .thenComparing(TodoItem::getId);
+  private static final Comparator<TodoItem> ID_ORDER = Comparator.comparing(TodoItem::getId);
+  private static final String SNAPSHOT_PREFIX = "snapshot-";
+  private static final String SNAPSHOT_SUFFIX = ".bin";
+  private static final String LOG_PREFIX = "wal-";
+  private static final String LOG_SUFFIX = ".log";
+  private static final int SNAPSHOT_MAGIC = 0x54444F53;
+  private static final int SNAPSHOT_FORMAT = 1;
+  private static final byte PUT = 1;
+  private static final byte DELETE = 2;
+  // Each log record is its payload length and the CRC32 of its payload, then the payload
+  private static final int RECORD_HEADER_SIZE = 8;
+  private static final long NO_DUE_DATE = Long.MIN_VALUE;
+  // Statuses are stored by ordinal, so new values must only be added last
+  private static final TodoStatus[] STATUSES = TodoStatus.values();
+
+  private final Path directory;
+  private final boolean forceOnCommit;
+  private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+  // All guarded by lock
+  private final LongHashMap<TodoItem> items = new LongHashMap<>();
+  private final Map<String, Owner> owners = new HashMap<>();
+  private final LongHashMap<Terms> termsByItem = new LongHashMap<>();
+  private final NavigableSet<Long> missingTerms = new TreeSet<>();
+  private long nextId = 1;
+  private FileChannel log;
+  private long logGeneration;
+  private long logSize;
+  // Whether committed changes failed to reach the log, so the next snapshot must be written whatever the log size
+  private boolean unlogged;
+
+  InMemoryTodoItemStore(@Value("${todo.store.memory.directory:./data/memory}") Path directory,
+                        @Value("${todo.store.memory.force-on-commit:false}") boolean forceOnCommit) {
+    this.directory = directory;
+    this.forceOnCommit = forceOnCommit;
+    try {
+      recover();
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to load the TodoItem store from " + directory, e);
+    }
+  }
+
+  /**
+   * One owner's indexes. The status maps and due date set hold the same items as the store's map by ID.
+   */
+  private static final class Owner {
+
+    private final Map<TodoStatus, LongHashMap<TodoItem>> byStatus = new EnumMap<>(TodoStatus.class);
+    private final NavigableSet<TodoItem> byDueDate = new TreeSet<>(DUE_DATE_ORDER);
+    // Term to item ID to weight
+    private final NavigableMap<String, LongHashMap<Integer>> terms = new TreeMap<>();
+
+    Owner() {
+      for (TodoStatus status : STATUSES) {
+        byStatus.put(status, new LongHashMap<>());
+      }
+    }
+  }
+
+  /**
+   * The search terms of an item, with its owner so they can be removed after the item is. Empty for an item indexed
+   * without any words.
+   */
+  private record Terms(String ownerId, Map<String, Integer> weights) {
+  }
+
+  /**
+   * The state before a write transaction of every item and set of search terms it changed, empty if there was none
+   */
+  private static final class WriteTransaction {
+
+    private final LongHashMap<Optional<TodoItem>> previousItems = new LongHashMap<>();
+    private final LongHashMap<Optional<Terms>> previousTerms = new LongHashMap<>();
+    private boolean autoCommit;
+  }
+
+  private record StoredStatusAndDueDate(Long id, TodoStatus status, LocalDate dueDate, Long version)
+      implements StatusAndDueDate {
+
+    static StoredStatusAndDueDate of(TodoItem item) {
+      return new StoredStatusAndDueDate(item.getId(), item.getStatus(), item.getDueDate(), item.getVersion());
+    }
+
+    @Override
+    public Long getId() {
+      return id;
+    }
+
+    @Override
+    public TodoStatus getStatus() {
+      return status;
+    }
+
+    @Override
+    public LocalDate getDueDate() {
+      return dueDate;
+    }
+
+    @Override
+    public Long getVersion() {
+      return version;
+    }
+  }
+
+  private record Count(String ownerId, TodoStatus status, LocalDate dueDate, long count)
+      implements StatusAndDueDateCount {
+
+    @Override
+    public String getOwnerId() {
+      return ownerId;
+    }
+
+    @Override
+    public TodoStatus getStatus() {
+      return status;
+    }
+
+    @Override
+    public LocalDate getDueDate() {
+      return dueDate;
+    }
+
+    @Override
+    public long getCount() {
+      return count;
+    }
+  }
+
+  private record Match(TodoItem item, int score) {
+  }
+
+  // Reads
+
+  @Override
+  public Optional<TodoItem> findByIdAndOwnerId(Long id, String ownerId) {
+    return read(() -> Optional.ofNullable(owned(id, ownerId)).map(InMemoryTodoItemStore::copy));
+  }
+
+  @Override
+  public Optional<TodoItemRow> findRowByIdAndOwnerId(Long id, String ownerId) {
+    return read(() -> Optional.ofNullable(owned(id, ownerId)).map(InMemoryTodoItemStore::row));
+  }
+
+  @Override
+  public List<TodoItem> findByOwnerIdAndIdIn(String ownerId, Collection<Long> ids) {
+    return read(() -> ids.stream()
+        .distinct()
+        .map(id -> owned(id, ownerId))
+        .filter(item -> item != null)
+        .map(InMemoryTodoItemStore::copy)
+        .toList());
+  }
+
+  @Override
+  public List<TodoItem> findAllById(Collection<Long> ids) {
+    return read(() -> ids.stream()
+        .distinct()
+        .map(id -> id == null ? null : items.get(id))
+        .filter(item -> item != null)
+        .map(InMemoryTodoItemStore::copy)
+        .toList());
+  }
+
+  @Override
+  public List<TodoItem> findByOwnerId(String ownerId) {
+    return read(() -> copies(withStatuses(ownerId, List.of(STATUSES))));
+  }
+
+  @Override
+  public List<TodoItem> findByOwnerIdAndStatusIn(String ownerId, List<TodoStatus> statuses) {
+    return read(() -> copies(withStatuses(ownerId, statuses)));
+  }
+
+  @Override
+  public long countByOwnerIdAndStatusIn(String ownerId, Collection<TodoStatus> statuses) {
+    return read(() -> {
+      Owner owner = owners.get(ownerId);
+      long count = 0;
+      if (owner != null) {
+        for (TodoStatus status : distinct(statuses)) {
+          count += owner.byStatus.get(status).size();
+        }
+      }
+      return count;
+    });
+  }
+
+  @Override
+  public List<StatusAndDueDateCount> countByOwnerStatusAndDueDate() {
+    return read(() -> {
+      List<StatusAndDueDateCount> counts = new ArrayList<>();
+      owners.forEach((ownerId, owner) -> owner.byStatus.forEach((status, statusItems) -> {
+        Map<LocalDate, long[]> byDueDate = new HashMap<>();
+        statusItems.forEach((id, item) -> byDueDate.computeIfAbsent(item.getDueDate(), date -> new long[1])[0]++);
+        byDueDate.forEach((dueDate, count) -> counts.add(new Count(ownerId, status, dueDate, count[0])));
+      }));
+      return counts;
+    });
+  }
+
+  @Override
+  public List<TodoItem> findUpdatedSince(String ownerId, LocalDateTime since, int limit) {
+    return read(() -> withStatuses(ownerId, List.of(STATUSES)).stream()
+        .filter(item -> !item.getUpdatedDate().isBefore(since))
+        .sorted(Comparator.comparing(TodoItem::getUpdatedDate))
+        .limit(limit)
+        .map(InMemoryTodoItemStore::copy)
+        .toList());
+  }
+
+  @Override
+  public List<TodoItem> findPage(String ownerId, Collection<TodoStatus> statuses, List<TodoSortOrder> sortOrders,
+                                 int offset, int limit) {
+    return read(() -> copies(sortedPage(ownerId, statuses, sortOrders, offset, limit)));
+  }
+
+  @Override
+  public List<TodoItemRow> findRowPage(String ownerId, Collection<TodoStatus> statuses,
+                                       List<TodoSortOrder> sortOrders, int offset, int limit) {
+    return read(() -> sortedPage(ownerId, statuses, sortOrders, offset, limit).stream()
+        .map(InMemoryTodoItemStore::row)
+        .toList());
+  }
+
+  @Override
+  public List<TodoItem> findAllSorted(String ownerId, List<TodoSortOrder> sortOrders, int limit) {
+    return read(() -> copies(sortedPage(ownerId, List.of(STATUSES), sortOrders, 0,
+        limit < 0 ? Integer.MAX_VALUE : limit)));
+  }
+
+  @Override
+  public List<TodoItem> findPageAfter(String ownerId, Collection<TodoStatus> statuses, TodoItemCursor after,
+                                      int limit) {
+    return read(() -> {
+      Owner owner = owners.get(ownerId);
+      if (owner == null) {
+        return List.of();
+      }
+      Iterable<TodoItem> ordered = owner.byDueDate;
+      if (after != null) {
+        TodoItem position = new TodoItem();
+        position.setId(after.id());
+        position.setDueDate(after.dueDate());
+        position.setPriority(after.priority());
+        ordered = owner.byDueDate.tailSet(position, false);
+      }
+      return copies(take(ordered, statuses, 0, limit));
+    });
+  }
+
+  @Override
+  public Stream<TodoItem> streamByStatusIn(String ownerId, Collection<TodoStatus> statuses) {
+    // Stored items are never changed, so they can be copied as the stream is consumed, outside the lock
+    List<TodoItem> matching = read(() -> withStatuses(ownerId, statuses));
+    matching.sort(ID_ORDER);
+    return matching.stream().map(InMemoryTodoItemStore::copy);
+  }
+
+  @Override
+  public List<TodoItem> searchPage(String ownerId, Collection<TodoStatus> statuses, TodoItemSearchQuery query,
+                                   int offset, int limit) {
+    return read(() -> copies(page(search(ownerId, statuses, query), offset, limit).stream()
+        .map(Match::item)
+        .toList()));
+  }
+
+  @Override
+  public List<TodoItemRow> searchRowPage(String ownerId, Collection<TodoStatus> statuses,
+                                         TodoItemSearchQuery query, int offset, int limit) {
+    return read(() -> page(search(ownerId, statuses, query), offset, limit).stream()
+        .map(match -> row(match.item()))
+        .toList());
+  }
+
+  @Override
+  public long countSearch(String ownerId, Collection<TodoStatus> statuses, TodoItemSearchQuery query) {
+    return read(() -> (long) search(ownerId, statuses, query).size());
+  }
+
+  @Override
+  public Optional<StatusAndDueDate> findStatusAndDueDateByIdAndOwnerId(Long id, String ownerId) {
+    return read(() -> Optional.ofNullable(owned(id, ownerId)).map(StoredStatusAndDueDate::of));
+  }
+
+  @Override
+  public List<Long> findIdsMissingSearchTerms(long afterId, int limit) {
+    return read(() -> missingTerms.tailSet(afterId, false).stream()
+        .limit(limit)
+        .toList());
+  }
+
+  // Writes, each holding the write lock until its transaction completes
+
+  @Override
+  public Optional<StatusAndDueDate> findStatusAndDueDateByIdAndOwnerIdForUpdate(Long id, String ownerId) {
+    WriteTransaction transaction = beginWrite();
+    try {
+      return Optional.ofNullable(owned(id, ownerId)).map(StoredStatusAndDueDate::of);
+    } finally {
+      endWrite(transaction);
+    }
+  }
+
+  @Override
+  public List<StatusAndDueDate> findStatusesAndDueDatesByOwnerIdAndIdInForUpdate(String ownerId,
+                                                                                 Collection<Long> ids) {
+    WriteTransaction transaction = beginWrite();
+    try {
+      return ids.stream()
+          .distinct()
+          .map(id -> owned(id, ownerId))
+          .filter(item -> item != null)
+          .<StatusAndDueDate>map(StoredStatusAndDueDate::of)
+          .toList();
+    } finally {
+      endWrite(transaction);
+    }
+  }
+
+  @Override
+  public TodoItem save(TodoItem item) {
+    WriteTransaction transaction = beginWrite();
+    try {
+      return copy(saveItem(transaction, item, LocalDateTime.now()));
+    } finally {
+      endWrite(transaction);
+    }
+  }
+
+  @Override
+  public List<TodoItem> saveAll(List<TodoItem> items) {
+    WriteTransaction transaction = beginWrite();
+    try {
+      LocalDateTime now = LocalDateTime.now();
+      List<TodoItem> saved = new ArrayList<>(items.size());
+      for (TodoItem item : items) {
+        saved.add(copy(saveItem(transaction, item, now)));
+      }
+      return saved;
+    } finally {
+      endWrite(transaction);
+    }
+  }
+
+  @Override
+  public int deleteByOwnerIdAndIdIn(String ownerId, Collection<Long> ids) {
+    WriteTransaction transaction = beginWrite();
+    try {
+      int deleted = 0;
+      for (Long id : ids) {
+        if (owned(id, ownerId) != null) {
+          remember(transaction, id);
+          remove(id);
+          deleted++;
+        }
+      }
+      return deleted;
+    } finally {
+      endWrite(transaction);
+    }
+  }
+
+  @Override
+  public int updateStatusByOwnerIdAndIdIn(String ownerId, Collection<Long> ids, TodoStatus status,
+                                          LocalDateTime updatedDate) {
+    WriteTransaction transaction = beginWrite();
+    try {
+      int updated = 0;
+      for (Long id : ids) {
+        TodoItem item = owned(id, ownerId);
+        if (item != null) {
+          replaceStatus(transaction, item, status, updatedDate);
+          updated++;
+        }
+      }
+      return updated;
+    } finally {
+      endWrite(transaction);
+    }
+  }
+
+  @Override
+  public int cycleStatusByIdAndOwnerId(Long id, String ownerId, LocalDateTime updatedDate) {
+    WriteTransaction transaction = beginWrite();
+    try {
+      TodoItem item = owned(id, ownerId);
+      if (item == null) {
+        return 0;
+      }
+      replaceStatus(transaction, item, item.getStatus().next(), updatedDate);
+      return 1;
+    } finally {
+      endWrite(transaction);
+    }
+  }
+
+  @Override
+  public void replaceSearchTerms(String ownerId, Map<Long, Map<String, Integer>> termWeightsByItemId) {
+    WriteTransaction transaction = beginWrite();
+    try {
+      termWeightsByItemId.forEach((id, weights) -> {
+        rememberTerms(transaction, id);
+        setTerms(id, new Terms(ownerId, Map.copyOf(weights)));
+      });
+    } finally {
+      endWrite(transaction);
+    }
+  }
+
+  @Override
+  public int deleteSearchTerms(Collection<Long> itemIds) {
+    WriteTransaction transaction = beginWrite();
+    try {
+      int deleted = 0;
+      for (Long id : itemIds) {
+        Terms terms = termsByItem.get(id);
+        if (terms != null) {
+          deleted += terms.weights().size();
+          rememberTerms(transaction, id);
+          setTerms(id, null);
+        }
+      }
+      return deleted;
+    } finally {
+      endWrite(transaction);
+    }
+  }
+
+  // Snapshots
+
+  /**
+   * Roll the log over and write every item to a snapshot, then delete the logs and snapshots it replaces. Does
+   * nothing if there have been no changes since the last snapshot, unless changes failed to be logged.
+   */
+  @Scheduled(fixedDelayString = "${todo.store.memory.snapshot-interval:5m}",
+      initialDelayString = "${todo.store.memory.snapshot-interval:5m}")
+  public synchronized void snapshot() {
+    List<TodoItem> snapshotItems;
+    long snapshotNextId;
+    long generation;
+    lock.writeLock().lock();
+    try {
+      if (logSize == 0 && !unlogged) {
+        return;
+      }
+      log.force(true);
+      log.close();
+      logGeneration++;
+      log = openLog(logGeneration);
+      logSize = 0;
+      unlogged = false;
+      // Stored items are never changed, so they can be written out after the lock is released
+      snapshotItems = items.values();
+      snapshotNextId = nextId;
+      generation = logGeneration;
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to roll over the TodoItem store log", e);
+    } finally {
+      lock.writeLock().unlock();
+    }
+
+    try {
+      long start = System.nanoTime();
+      writeSnapshot(generation, snapshotItems, snapshotNextId);
+      deleteFilesBefore(generation);
+      logger.info("Wrote a snapshot of {} TodoItems in {} ms", snapshotItems.size(),
+          (System.nanoTime() - start) / 1_000_000);
+    } catch (IOException e) {
+      // The logs are only deleted once the snapshot is written, so nothing logged is lost, but changes that failed
+      // to be logged still need a snapshot
+      logger.error("Failed to write a snapshot of the TodoItem store", e);
+      lock.writeLock().lock();
+      try {
+        unlogged = true;
+      } finally {
+        lock.writeLock().unlock();
+      }
+    }
+  }
+
+  @PreDestroy
+  public void close() throws IOException {
+    snapshot();
+    lock.writeLock().lock();
+    try {
+      log.close();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  // Transactions
+
+  /**
+   * Take the write lock, which is held until the current transaction completes, or until {@link #endWrite} if
+   * there is none
+   */
+  private WriteTransaction beginWrite() {
+    WriteTransaction transaction = (WriteTransaction) TransactionSynchronizationManager.getResource(this);
+    if (transaction != null) {
+      return transaction;
+    }
+
+    lock.writeLock().lock();
+    WriteTransaction newTransaction = new WriteTransaction();
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      newTransaction.autoCommit = true;
+      return newTransaction;
+    }
+    TransactionSynchronizationManager.bindResource(this, newTransaction);
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCompletion(int status) {
+        TransactionSynchronizationManager.unbindResourceIfPossible(InMemoryTodoItemStore.this);
+        try {
+          if (status == STATUS_COMMITTED) {
+            commit(newTransaction);
+          } else {
+            rollback(newTransaction);
+          }
+        } finally {
+          lock.writeLock().unlock();
+        }
+      }
+    });
+    return newTransaction;
+  }
+
+  private void endWrite(WriteTransaction transaction) {
+    if (transaction.autoCommit) {
+      try {
+        commit(transaction);
+      } finally {
+        lock.writeLock().unlock();
+      }
+    }
+  }
+
+  /**
+   * Append the new state of every item the transaction changed to the log
+   */
+  private void commit(WriteTransaction transaction) {
+    if (transaction.previousItems.isEmpty()) {
+      return;
+    }
+    try {
+      ByteArrayOutputStream records = new ByteArrayOutputStream();
+      ByteArrayOutputStream payload = new ByteArrayOutputStream();
+      DataOutputStream payloadOut = new DataOutputStream(payload);
+      DataOutputStream recordsOut = new DataOutputStream(records);
+      CRC32 crc = new CRC32();
+      transaction.previousItems.forEach((id, previous) -> {
+        try {
+          payload.reset();
+          TodoItem item = items.get(id);
+          if (item == null) {
+            payloadOut.writeByte(DELETE);
+            payloadOut.writeLong(id);
+          } else {
+            payloadOut.writeByte(PUT);
+            writeItem(payloadOut, item);
+          }
+          crc.reset();
+          crc.update(payload.toByteArray());
+          recordsOut.writeInt(payload.size());
+          recordsOut.writeInt((int) crc.getValue());
+          payload.writeTo(recordsOut);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+
+      ByteBuffer buffer = ByteBuffer.wrap(records.toByteArray());
+      while (buffer.hasRemaining()) {
+        log.write(buffer);
+      }
+      if (forceOnCommit) {
+        log.force(false);
+      }
+      logSize += records.size();
+    } catch (IOException | UncheckedIOException e) {
+      // The change is kept in memory and written by the next snapshot, but a crash before then loses it
+      logger.error("Failed to log changes to {} TodoItems", transaction.previousItems.size(), e);
+      unlogged = true;
+      discardPartialRecords();
+    }
+  }
+
+  /**
+   * Cut off whatever part of a failed write reached the log, so later records are not appended after a torn one
+   * that would end the log on replay. If it can't be cut off, later records go to a new log instead.
+   */
+  private void discardPartialRecords() {
+    try {
+      log.truncate(logSize);
+      return;
+    } catch (IOException e) {
+      logger.error("Failed to truncate the TodoItem store log to {} bytes, starting a new log", logSize, e);
+    }
+    try {
+      log.close();
+    } catch (IOException e) {
+      logger.warn("Failed to close the TodoItem store log", e);
+    }
+    try {
+      logGeneration++;
+      log = openLog(logGeneration);
+      logSize = 0;
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to start a new TodoItem store log", e);
+    }
+  }
+
+  /**
+   * Put back the state from before the transaction of every item and set of search terms it changed
+   */
+  private void rollback(WriteTransaction transaction) {
+    transaction.previousItems.forEach((id, previous) -> {
+      if (previous.isPresent()) {
+        put(previous.get());
+      } else {
+        remove(id);
+      }
+    });
+    transaction.previousTerms.forEach((id, previous) -> setTerms(id, previous.orElse(null)));
+  }
+
+  private void remember(WriteTransaction transaction, long id) {
+    if (!transaction.previousItems.containsKey(id)) {
+      transaction.previousItems.put(id, Optional.ofNullable(items.get(id)));
+    }
+  }
+
+  private void rememberTerms(WriteTransaction transaction, long id) {
+    if (!transaction.previousTerms.containsKey(id)) {
+      transaction.previousTerms.put(id, Optional.ofNullable(termsByItem.get(id)));
+    }
+  }
+
+  private <T> T read(Supplier<T> query) {
+    lock.readLock().lock();
+    try {
+      return query.get();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  // Changes to the indexes, under the write lock
+
+  private TodoItem saveItem(WriteTransaction transaction, TodoItem item, LocalDateTime now) {
+    TodoItem stored = copy(item);
+    if (item.getId() == null) {
+      stored.setId(nextId);
+      stored.setCreatedDate(now);
+      stored.setVersion(0L);
+    } else {
+      TodoItem existing = items.get(item.getId());
+      if (existing == null || (item.getVersion() != null && !item.getVersion().equals(existing.getVersion()))) {
+        throw new ObjectOptimisticLockingFailureException(TodoItem.class, item.getId());
+      }
+      stored.setOwnerId(existing.getOwnerId());
+      stored.setCreatedDate(existing.getCreatedDate());
+      stored.setVersion(existing.getVersion() + 1);
+    }
+    stored.setUpdatedDate(now);
+    remember(transaction, stored.getId());
+    put(stored);
+    return stored;
+  }
+
+  private void replaceStatus(WriteTransaction transaction, TodoItem item, TodoStatus status,
+                             LocalDateTime updatedDate) {
+    TodoItem updated = copy(item);
+    updated.setStatus(status);
+    updated.setUpdatedDate(updatedDate);
+    updated.setVersion(item.getVersion() + 1);
+    remember(transaction, item.getId());
+    put(updated);
+  }
+
+  /**
+   * Add an item, or replace the stored item with the same ID
+   */
+  private void put(TodoItem item) {
+    TodoItem previous = items.put(item.getId(), item);
+    if (previous != null) {
+      unindex(previous);
+    }
+    Owner owner = owners.computeIfAbsent(item.getOwnerId(), ownerId -> new Owner());
+    owner.byStatus.get(item.getStatus()).put(item.getId(), item);
+    owner.byDueDate.add(item);
+    nextId = Math.max(nextId, item.getId() + 1);
+    updateMissingTerms(item.getId());
+  }
+
+  private void remove(long id) {
+    TodoItem previous = items.remove(id);
+    if (previous != null) {
+      unindex(previous);
+    }
+    updateMissingTerms(id);
+  }
+
+  private void unindex(TodoItem item) {
+    Owner owner = owners.get(item.getOwnerId());
+    owner.byStatus.get(item.getStatus()).remove(item.getId());
+    owner.byDueDate.remove(item);
+  }
+
+  /**
+   * Replace an item's search terms, or remove them with null
+   */
+  private void setTerms(long id, Terms terms) {
+    Terms previous = terms == null ? termsByItem.remove(id) : termsByItem.put(id, terms);
+    if (previous != null) {
+      NavigableMap<String, LongHashMap<Integer>> ownerTerms = owners.get(previous.ownerId()).terms;
+      for (String term : previous.weights().keySet()) {
+        LongHashMap<Integer> postings = ownerTerms.get(term);
+        postings.remove(id);
+        if (postings.isEmpty()) {
+          ownerTerms.remove(term);
+        }
+      }
+    }
+    if (terms != null) {
+      NavigableMap<String, LongHashMap<Integer>> ownerTerms =
+          owners.computeIfAbsent(terms.ownerId(), ownerId -> new Owner()).terms;
+      terms.weights().forEach((term, weight) -> ownerTerms.computeIfAbsent(term, t -> new LongHashMap<>())
+          .put(id, weight));
+    }
+    updateMissingTerms(id);
+  }
+
+  private void updateMissingTerms(long id) {
+    if (items.containsKey(id) && !termsByItem.containsKey(id)) {
+      missingTerms.add(id);
+    } else {
+      missingTerms.remove(id);
+    }
+  }
+
+  // Queries, under the read lock
+
+  private TodoItem owned(Long id, String ownerId) {
+    if (id == null) {
+      return null;
+    }
+    TodoItem item = items.get(id);
+    return item != null && item.getOwnerId().equals(ownerId) ? item : null;
+  }
+
+  private List<TodoItem> withStatuses(String ownerId, Collection<TodoStatus> statuses) {
+    Owner owner = owners.get(ownerId);
+    List<TodoItem> matching = new ArrayList<>();
+    if (owner != null) {
+      for (TodoStatus status : distinct(statuses)) {
+        matching.addAll(owner.byStatus.get(status).values());
+      }
+    }
+    return matching;
+  }
+
+  /**
+   * One page of an owner's items in the statuses, read in order from the due date index when that is the order
+   * asked for, otherwise sorted
+   */
+  private List<TodoItem> sortedPage(String ownerId, Collection<TodoStatus> statuses, List<TodoSortOrder> sortOrders,
+                                    int offset, int limit) {
+    Owner owner = owners.get(ownerId);
+    if (owner == null) {
+      return List.of();
+    }
+    if (isDueDateOrder(sortOrders)) {
+      return take(owner.byDueDate, statuses, offset, limit);
+    }
+    return page(TodoItemSorter.sort(withStatuses(ownerId, statuses), sortOrders), offset, limit);
+  }
+
+  private static boolean isDueDateOrder(List<TodoSortOrder> sortOrders) {
+    return sortOrders.size() == 2
+        && isAscendingNullsLast(sortOrders.get(0), TodoSortField.DUE_DATE)
+        && isAscendingNullsLast(sortOrders.get(1), TodoSortField.PRIORITY);
+  }
+
+  private static boolean isAscendingNullsLast(TodoSortOrder sortOrder, TodoSortField field) {
+    return sortOrder.field() == field && sortOrder.direction().isAscending() && !sortOrder.isNullsFirst();
+  }
+
+  private static List<TodoItem> take(Iterable<TodoItem> ordered, Collection<TodoStatus> statuses, int offset,
+                                     int limit) {
+    List<TodoItem> page = new ArrayList<>();
+    Iterator<TodoItem> iterator = ordered.iterator();
+    int skipped = 0;
+    while (page.size() < limit && iterator.hasNext()) {
+      TodoItem item = iterator.next();
+      if (statuses.contains(item.getStatus()) && skipped++ >= offset) {
+        page.add(item);
+      }
+    }
+    return page;
+  }
+
+  /**
+   * The owner's items in the statuses containing every term of the query, best matches first
+   */
+  private List<Match> search(String ownerId, Collection<TodoStatus> statuses, TodoItemSearchQuery query) {
+    Owner owner = owners.get(ownerId);
+    if (owner == null) {
+      return List.of();
+    }
+
+    List<LongHashMap<Integer>> postings = new ArrayList<>();
+    for (String term : query.terms()) {
+      LongHashMap<Integer> termPostings = owner.terms.get(term);
+      if (termPostings == null) {
+        return List.of();
+      }
+      postings.add(termPostings);
+    }
+    if (query.prefix() != null) {
+      // Every term starting with the prefix counts, with their weights summed
+      LongHashMap<Integer> prefixPostings = new LongHashMap<>();
+      for (LongHashMap<Integer> termPostings
+          : owner.terms.subMap(query.prefix(), query.prefix() + Character.MAX_VALUE).values()) {
+        termPostings.forEach((id, weight) -> prefixPostings.put(id, prefixPostings.getOrDefault(id, 0) + weight));
+      }
+      if (prefixPostings.isEmpty()) {
+        return List.of();
+      }
+      postings.add(prefixPostings);
+    }
+
+    // Look up the items of the rarest term in the others
+    postings.sort(Comparator.comparingInt(LongHashMap::size));
+    List<Match> matches = new ArrayList<>();
+    postings.get(0).forEach((id, weight) -> {
+      int score = weight;
+      for (int i = 1; i < postings.size(); i++) {
+        Integer otherWeight = postings.get(i).get(id);
+        if (otherWeight == null) {
+          return;
+        }
+        score += otherWeight;
+      }
+      TodoItem item = items.get(id);
+      if (item != null && statuses.contains(item.getStatus())) {
+        matches.add(new Match(item, score));
+      }
+    });
+    matches.sort(Comparator.comparingInt(Match::score).reversed().thenComparing(match -> match.item().getId()));
+    return matches;
+  }
+
+  private static <T> List<T> page(List<T> sorted, int offset, int limit) {
+    int from = Math.min(offset, sorted.size());
+    return sorted.subList(from, (int) Math.min(sorted.size(), (long) from + limit));
+  }
+
+  private static List<TodoStatus> distinct(Collection<TodoStatus> statuses) {
+    return statuses.stream().distinct().toList();
+  }
+
+  private static List<TodoItem> copies(List<TodoItem> stored) {
+    return stored.stream().map(InMemoryTodoItemStore::copy).toList();
+  }
+
+  private static TodoItem copy(TodoItem item) {
+    TodoItem copy = new TodoItem();
+    copy.setId(item.getId());
+    copy.setOwnerId(item.getOwnerId());
+    copy.setDescription(item.getDescription());
+    copy.setDetailedNotes(item.getDetailedNotes());
+    copy.setStatus(item.getStatus());
+    copy.setPriority(item.getPriority());
+    copy.setDueDate(item.getDueDate());
+    copy.setCreatedDate(item.getCreatedDate());
+    copy.setUpdatedDate(item.getUpdatedDate());
+    copy.setVersion(item.getVersion());
+    return copy;
+  }
+
+  private static TodoItemRow row(TodoItem item) {
+    return new TodoItemRow(item.getId(), item.getStatus(), item.getDescription(), item.getPriority(),
+        item.getDueDate());
+  }
+
+  // Files
+
+  /**
+   * Load the latest snapshot, replay the logs written after it and rebuild the search index
+   */
+  private void recover() throws IOException {
+    Files.createDirectories(directory);
+    long start = System.nanoTime();
+    List<Long> snapshots = generations(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+    long snapshotGeneration = snapshots.isEmpty() ? 0 : snapshots.get(snapshots.size() - 1);
+    if (snapshotGeneration > 0) {
+      readSnapshot(path(SNAPSHOT_PREFIX, snapshotGeneration, SNAPSHOT_SUFFIX));
+    }
+
+    List<Long> logs = generations(LOG_PREFIX, LOG_SUFFIX).stream()
+        .filter(generation -> generation >= snapshotGeneration)
+        .toList();
+    long replayed = 0;
+    for (long generation : logs) {
+      replayed += replayLog(path(LOG_PREFIX, generation, LOG_SUFFIX));
+    }
+
+    logGeneration = Math.max(snapshotGeneration, logs.isEmpty() ? 1 : logs.get(logs.size() - 1));
+    log = openLog(logGeneration);
+    logSize = log.size();
+
+    items.forEach((id, item) -> setTerms(id, new Terms(item.getOwnerId(), TodoItemSearchIndex.termWeights(item))));
+    logger.info("Loaded {} TodoItems from {}, replaying {} logged changes, in {} ms", items.size(), directory,
+        replayed, (System.nanoTime() - start) / 1_000_000);
+  }
+
+  private void readSnapshot(Path path) throws IOException {
+    CRC32 crc = new CRC32();
+    try (InputStream file = Files.newInputStream(path);
+         CheckedInputStream checked = new CheckedInputStream(new BufferedInputStream(file), crc);
+         DataInputStream in = new DataInputStream(checked)) {
+      if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_FORMAT) {
+        throw new IOException("Not a TodoItem store snapshot: " + path);
+      }
+      long snapshotNextId = in.readLong();
+      int count = in.readInt();
+      for (int i = 0; i < count; i++) {
+        put(readItem(in));
+      }
+      long expected = crc.getValue();
+      if (in.readLong() != expected) {
+        throw new IOException("Corrupt TodoItem store snapshot: " + path);
+      }
+      nextId = Math.max(nextId, snapshotNextId);
+    }
+  }
+
+  /**
+   * Write a snapshot to a temporary file and move it into place once it is on disk
+   */
+  private void writeSnapshot(long generation, List<TodoItem> snapshotItems, long snapshotNextId) throws IOException {
+    Path target = path(SNAPSHOT_PREFIX, generation, SNAPSHOT_SUFFIX);
+    Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+    CRC32 crc = new CRC32();
+    try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING)) {
+      DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+          new CheckedOutputStream(Channels.newOutputStream(channel), crc)));
+      out.writeInt(SNAPSHOT_MAGIC);
+      out.writeInt(SNAPSHOT_FORMAT);
+      out.writeLong(snapshotNextId);
+      out.writeInt(snapshotItems.size());
+      for (TodoItem item : snapshotItems) {
+        writeItem(out, item);
+      }
+      out.flush();
+      out.writeLong(crc.getValue());
+      out.flush();
+      channel.force(true);
+    }
+    Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  /**
+   * Apply the records of a log, returning the number applied. A record torn by a crash ends the log, and is cut
+   * off so appending continues from the last complete record.
+   */
+  private long replayLog(Path path) throws IOException {
+    long applied = 0;
+    long position = 0;
+    long size = Files.size(path);
+    CRC32 crc = new CRC32();
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+      while (true) {
+        byte[] payload;
+        try {
+          int length = in.readInt();
+          int expected = in.readInt();
+          if (length <= 0 || length > size - position - RECORD_HEADER_SIZE) {
+            break;
+          }
+          payload = new byte[length];
+          in.readFully(payload);
+          crc.reset();
+          crc.update(payload);
+          if ((int) crc.getValue() != expected) {
+            break;
+          }
+        } catch (EOFException e) {
+          break;
+        }
+
+        DataInputStream record = new DataInputStream(new ByteArrayInputStream(payload));
+        if (record.readByte() == PUT) {
+          put(readItem(record));
+        } else {
+          remove(record.readLong());
+        }
+        applied++;
+        position += RECORD_HEADER_SIZE + payload.length;
+      }
+    }
+
+    if (position < size) {
+      logger.warn("Dropping an incomplete record from {} at offset {}", path, position);
+      try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+        channel.truncate(position);
+      }
+    }
+    return applied;
+  }
+
+  private FileChannel openLog(long generation) throws IOException {
+    return FileChannel.open(path(LOG_PREFIX, generation, LOG_SUFFIX), StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+  }
+
+  private void deleteFilesBefore(long generation) throws IOException {
+    for (long older : generations(LOG_PREFIX, LOG_SUFFIX)) {
+      if (older < generation) {
+        Files.deleteIfExists(path(LOG_PREFIX, older, LOG_SUFFIX));
+      }
+    }
+    for (long older : generations(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX)) {
+      if (older < generation) {
+        Files.deleteIfExists(path(SNAPSHOT_PREFIX, older, SNAPSHOT_SUFFIX));
+      }
+    }
+  }
+
+  private List<Long> generations(String prefix, String suffix) throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files
+          .map(file -> file.getFileName().toString())
+          .filter(name -> name.startsWith(prefix) && name.endsWith(suffix))
+          .map(name -> Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length())))
+          .sorted()
+          .toList();
+    }
+  }
+
+  private Path path(String prefix, long generation, String suffix) {
+    return directory.resolve(prefix + String.format("%020d", generation) + suffix);
+  }
+
+  private static void writeItem(DataOutput out, TodoItem item) throws IOException {
+    out.writeLong(item.getId());
+    out.writeUTF(item.getOwnerId());
+    out.writeUTF(item.getDescription());
+    out.writeBoolean(item.getDetailedNotes() != null);
+    if (item.getDetailedNotes() != null) {
+      out.writeUTF(item.getDetailedNotes());
+    }
+    out.writeByte(item.getStatus().ordinal());
+    out.writeByte(item.getPriority() == null ? 0 : item.getPriority());
+    out.writeLong(item.getDueDate() == null ? NO_DUE_DATE : item.getDueDate().toEpochDay());
+    writeDateTime(out, item.getCreatedDate());
+    writeDateTime(out, item.getUpdatedDate());
+    out.writeLong(item.getVersion());
+  }
+
+  private static TodoItem readItem(DataInput in) throws IOException {
+    TodoItem item = new TodoItem();
+    item.setId(in.readLong());
+    item.setOwnerId(in.readUTF());
+    item.setDescription(in.readUTF());
+    item.setDetailedNotes(in.readBoolean() ? in.readUTF() : null);
+    item.setStatus(STATUSES[in.readByte()]);
+    byte priority = in.readByte();
+    item.setPriority(priority == 0 ? null : (int) priority);
+    long dueDate = in.readLong();
+    item.setDueDate(dueDate == NO_DUE_DATE ? null : LocalDate.ofEpochDay(dueDate));
+    item.setCreatedDate(readDateTime(in));
+    item.setUpdatedDate(readDateTime(in));
+    item.setVersion(in.readLong());
+    return item;
+  }
+
+  private static void writeDateTime(DataOutput out, LocalDateTime dateTime) throws IOException {
+    out.writeLong(dateTime.toEpochSecond(ZoneOffset.UTC));
+    out.writeInt(dateTime.getNano());
+  }
+
+  private static LocalDateTime readDateTime(DataInput in) throws IOException {
+    return LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC);
+  }
+}
@@ -0,0 +1,175 @@
+package com.ssta.todo;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Stores TodoItems in the database with {@link TodoItemRepository}; the default store
+ */
+@Component
+@ConditionalOnProperty(name = "todo.store", havingValue = "jpa", matchIfMissing = true)
+class JpaTodoItemStore implements TodoItemStore {
+
+  private final TodoItemRepository repository;
+
+  JpaTodoItemStore(TodoItemRepository repository) {
+    this.repository = repository;
+  }
+
+  @Override
+  public Optional<TodoItem> findByIdAndOwnerId(Long id, String ownerId) {
+    return repository.findByIdAndOwnerId(id, ownerId);
+  }
+
+  @Override
+  public Optional<TodoItemRow> findRowByIdAndOwnerId(Long id, String ownerId) {
+    return repository.findRowByIdAndOwnerId(id, ownerId);
+  }
+
+  @Override
+  public List<TodoItem> findByOwnerIdAndIdIn(String ownerId, Collection<Long> ids) {
+    return repository.findByOwnerIdAndIdIn(ownerId, ids);
+  }
+
+  @Override
+  public List<TodoItem> findAllById(Collection<Long> ids) {
+    return repository.findAllById(ids);
+  }
+
+  @Override
+  public List<TodoItem> findByOwnerId(String ownerId) {
+    return repository.findByOwnerId(ownerId);
+  }
+
+  @Override
+  public List<TodoItem> findByOwnerIdAndStatusIn(String ownerId, List<TodoStatus> statuses) {
+    return repository.findByOwnerIdAndStatusIn(ownerId, statuses);
+  }
+
+  @Override
+  public long countByOwnerIdAndStatusIn(String ownerId, Collection<TodoStatus> statuses) {
+    return repository.countByOwnerIdAndStatusIn(ownerId, statuses);
+  }
+
+  @Override
+  public List<StatusAndDueDateCount> countByOwnerStatusAndDueDate() {
+    return repository.countByOwnerStatusAndDueDate();
+  }
+
+  @Override
+  public List<TodoItem> findUpdatedSince(String ownerId, LocalDateTime since, int limit) {
+    return repository.findByOwnerIdAndUpdatedDateGreaterThanEqualOrderByUpdatedDateAsc(ownerId, since,
+        Limit.of(limit));
+  }
+
+  @Override
+  public List<TodoItem> findPage(String ownerId, Collection<TodoStatus> statuses, List<TodoSortOrder> sortOrders,
+                                 int offset, int limit) {
+    return repository.findPage(ownerId, statuses, sortOrders, offset, limit);
+  }
+
+  @Override
+  public List<TodoItemRow> findRowPage(String ownerId, Collection<TodoStatus> statuses,
+                                       List<TodoSortOrder> sortOrders, int offset, int limit) {
+    return repository.findRowPage(ownerId, statuses, sortOrders, offset, limit);
+  }
+
+  @Override
+  public List<TodoItem> findAllSorted(String ownerId, List<TodoSortOrder> sortOrders, int limit) {
+    return repository.findAllSorted(ownerId, sortOrders, limit);
+  }
+
+  @Override
+  public List<TodoItem> findPageAfter(String ownerId, Collection<TodoStatus> statuses, TodoItemCursor after,
+                                      int limit) {
+    return repository.findPageAfter(ownerId, statuses, after, limit);
+  }
+
+  @Override
+  public Stream<TodoItem> streamByStatusIn(String ownerId, Collection<TodoStatus> statuses) {
+    return repository.streamByStatusIn(ownerId, statuses);
+  }
+
+  @Override
+  public List<TodoItem> searchPage(String ownerId, Collection<TodoStatus> statuses, TodoItemSearchQuery query,
+                                   int offset, int limit) {
+    return repository.searchPage(ownerId, statuses, query, offset, limit);
+  }
+
+  @Override
+  public List<TodoItemRow> searchRowPage(String ownerId, Collection<TodoStatus> statuses,
+                                         TodoItemSearchQuery query, int offset, int limit) {
+    return repository.searchRowPage(ownerId, statuses, query, offset, limit);
+  }
+
+  @Override
+  public long countSearch(String ownerId, Collection<TodoStatus> statuses, TodoItemSearchQuery query) {
+    return repository.countSearch(ownerId, statuses, query);
+  }
+
+  @Override
+  public Optional<StatusAndDueDate> findStatusAndDueDateByIdAndOwnerId(Long id, String ownerId) {
+    return repository.findStatusAndDueDateByIdAndOwnerId(id, ownerId);
+  }
+
+  @Override
+  public Optional<StatusAndDueDate> findStatusAndDueDateByIdAndOwnerIdForUpdate(Long id, String ownerId) {
+    return repository.findStatusAndDueDateByIdAndOwnerIdForUpdate(id, ownerId);
+  }
+
+  @Override
+  public List<StatusAndDueDate> findStatusesAndDueDatesByOwnerIdAndIdInForUpdate(String ownerId,
+                                                                                 Collection<Long> ids) {
+    return repository.findStatusesAndDueDatesByOwnerIdAndIdInForUpdate(ownerId, ids);
+  }
+
+  @Override
+  public TodoItem save(TodoItem item) {
+    // Flushed so the returned item carries the version it is stored with
+    return repository.saveAndFlush(item);
+  }
+
+  @Override
+  public List<TodoItem> saveAll(List<TodoItem> items) {
+    return repository.saveAllAndFlush(items);
+  }
+
+  @Override
+  public int deleteByOwnerIdAndIdIn(String ownerId, Collection<Long> ids) {
+    return repository.deleteByOwnerIdAndIdIn(ownerId, ids);
+  }
+
+  @Override
+  public int updateStatusByOwnerIdAndIdIn(String ownerId, Collection<Long> ids, TodoStatus status,
+                                          LocalDateTime updatedDate) {
+    return repository.updateStatusByOwnerIdAndIdIn(ownerId, ids, status, updatedDate);
+  }
+
+  @Override
+  public int cycleStatusByIdAndOwnerId(Long id, String ownerId, LocalDateTime updatedDate) {
+    return repository.cycleStatusByIdAndOwnerId(id, ownerId, updatedDate);
+  }
+
+  @Override
+  public void replaceSearchTerms(String ownerId, Map<Long, Map<String, Integer>> termWeightsByItemId) {
+    repository.replaceSearchTerms(ownerId, termWeightsByItemId);
+  }
+
+  @Override
+  public int deleteSearchTerms(Collection<Long> itemIds) {
+    return repository.deleteSearchTerms(itemIds);
+  }
+
+  @Override
+  public List<Long> findIdsMissingSearchTerms(long afterId, int limit) {
+    return repository.findIdsMissingSearchTerms(afterId, limit);
+  }
+}
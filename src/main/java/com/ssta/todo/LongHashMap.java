@@ -0,0 +1,156 @@
+package com.ssta.todo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A hash map from long keys to values that stores the keys unboxed, in parallel key and value arrays with linear
+ * probing. Used by {@link InMemoryTodoItemStore} to index items by ID without a Long and a map entry per item.
+ * Key 0 marks an empty slot, so it cannot be stored. Not thread-safe.
+ */
+final class LongHashMap<V> {
+
+  private static final int MIN_CAPACITY = 8;
+
+  private long[] keys;
+  private Object[] values;
+  private int size;
+
+  LongHashMap() {
+    keys = new long[MIN_CAPACITY];
+    values = new Object[MIN_CAPACITY];
+  }
+
+  /**
+   * Receives the entries of a map
+   */
+  @FunctionalInterface
+  interface EntryConsumer<V> {
+    void accept(long key, V value);
+  }
+
+  int size() {
+    return size;
+  }
+
+  boolean isEmpty() {
+    return size == 0;
+  }
+
+  boolean containsKey(long key) {
+    return keys[slot(key)] != 0;
+  }
+
+  @SuppressWarnings("unchecked")
+  V get(long key) {
+    return (V) values[slot(key)];
+  }
+
+  V getOrDefault(long key, V defaultValue) {
+    V value = get(key);
+    return value == null ? defaultValue : value;
+  }
+
+  /**
+   * Map the key to the value, returning the value it replaced or null
+   */
+  @SuppressWarnings("unchecked")
+  V put(long key, V value) {
+    if (key == 0) {
+      throw new IllegalArgumentException("Key 0 cannot be stored");
+    }
+    int slot = slot(key);
+    V previous = (V) values[slot];
+    values[slot] = value;
+    if (keys[slot] == 0) {
+      keys[slot] = key;
+      // Keep the table at most two thirds full, so probe sequences stay short
+      if (++size * 3 > keys.length * 2) {
+        resize(keys.length * 2);
+      }
+    }
+    return previous;
+  }
+
+  /**
+   * Remove the key, returning the value it mapped to or null
+   */
+  @SuppressWarnings("unchecked")
+  V remove(long key) {
+    int slot = slot(key);
+    if (keys[slot] == 0) {
+      return null;
+    }
+    V previous = (V) values[slot];
+    size--;
+
+    // Move later entries of the probe sequence back into the gap, so lookups never stop short at it
+    int mask = keys.length - 1;
+    int gap = slot;
+    int next = (gap + 1) & mask;
+    while (keys[next] != 0) {
+      int home = home(keys[next]);
+      if (((next - home) & mask) >= ((next - gap) & mask)) {
+        keys[gap] = keys[next];
+        values[gap] = values[next];
+        gap = next;
+      }
+      next = (next + 1) & mask;
+    }
+    keys[gap] = 0;
+    values[gap] = null;
+    return previous;
+  }
+
+  @SuppressWarnings("unchecked")
+  void forEach(EntryConsumer<? super V> consumer) {
+    for (int i = 0; i < keys.length; i++) {
+      if (keys[i] != 0) {
+        consumer.accept(keys[i], (V) values[i]);
+      }
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  List<V> values() {
+    List<V> list = new ArrayList<>(size);
+    for (int i = 0; i < keys.length; i++) {
+      if (keys[i] != 0) {
+        list.add((V) values[i]);
+      }
+    }
+    return list;
+  }
+
+  /**
+   * The slot holding the key, or the empty slot where it would go
+   */
+  private int slot(long key) {
+    int mask = keys.length - 1;
+    int slot = home(key);
+    while (keys[slot] != 0 && keys[slot] != key) {
+      slot = (slot + 1) & mask;
+    }
+    return slot;
+  }
+
+  private int home(long key) {
+    // Spread sequential IDs across the table
+    long hash = key * 0x9E3779B97F4A7C15L;
+    return (int) (hash ^ (hash >>> 32)) & (keys.length - 1);
+  }
+
+  private void resize(int capacity) {
+    long[] oldKeys = keys;
+    Object[] oldValues = values;
+    keys = new long[capacity];
+    values = new Object[capacity];
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldKeys[i] != 0) {
+        int slot = slot(oldKeys[i]);
+        keys[slot] = oldKeys[i];
+        values[slot] = oldValues[i];
+      }
+    }
+  }
+}
@@ -1,10 +1,14 @@
 package com.ssta.todo;
 
+import com.vaadin.flow.component.AttachEvent;
+import com.vaadin.flow.component.DetachEvent;
+import com.vaadin.flow.component.UI;
 import com.vaadin.flow.component.button.Button;
 import com.vaadin.flow.component.button.ButtonVariant;
 import com.vaadin.flow.component.checkbox.Checkbox;
 import com.vaadin.flow.component.confirmdialog.ConfirmDialog;
 import com.vaadin.flow.component.grid.Grid;
+import com.vaadin.flow.component.grid.GridSortOrder;
 import com.vaadin.flow.component.html.Div;
 import com.vaadin.flow.component.html.H1;
 import com.vaadin.flow.component.html.H3;
@@ -16,36 +20,119 @@ import com.vaadin.flow.component.notification.Notification;
 import com.vaadin.flow.component.notification.NotificationVariant;
 import com.vaadin.flow.component.orderedlayout.HorizontalLayout;
 import com.vaadin.flow.component.orderedlayout.VerticalLayout;
+import com.vaadin.flow.component.textfield.TextField;
+import com.vaadin.flow.data.provider.CallbackDataProvider;
+import com.vaadin.flow.data.provider.Query;
+import com.vaadin.flow.data.provider.QuerySortOrder;
+import com.vaadin.flow.data.provider.SortDirection;
+import com.vaadin.flow.data.renderer.LitRenderer;
+import com.vaadin.flow.data.value.ValueChangeMode;
 import com.vaadin.flow.router.Route;
+import com.vaadin.flow.shared.Registration;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.OptimisticLockingFailureException;
 
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
 
 @Route("")
 public class MainView extends VerticalLayout {
 
   private static final Logger logger = LoggerFactory.getLogger(MainView.class);
+  private static final int MAX_ROWS_REFRESHED_IN_PLACE = 50;
+  private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+
+  // Cells are rendered in the browser from these templates, so each row only sends its data rather than a tree of
+  // server-side components. The hover effect runs in the browser too.
+  private static final String STATUS_TEMPLATE = """
+      <span theme="${item.theme}" @click="${cycle}"
+            style="cursor: pointer; transition: all 0.2s ease; user-select: none;"
+            @mouseenter="${e => { e.target.style.transform = 'scale(1.05)';
+                                  e.target.style.boxShadow = '0 2px 4px rgba(0, 0, 0, 0.2)'; }}"
+            @mouseleave="${e => { e.target.style.transform = 'scale(1)'; e.target.style.boxShadow = 'none'; }}"
+      >${item.label}</span>""";
+  private static final String DUE_DATE_TEMPLATE = """
+      <vaadin-horizontal-layout theme="spacing" style="align-items: center;">
+        <vaadin-icon icon="vaadin:warning" ?hidden="${item.dueState !== 'overdue'}"
+            style="color: var(--lumo-error-color); width: 16px; height: 16px;"></vaadin-icon>
+        <vaadin-icon icon="vaadin:clock" ?hidden="${item.dueState !== 'today'}"
+            style="color: var(--lumo-warning-color); width: 16px; height: 16px;"></vaadin-icon>
+        <span style="${item.dueState === 'overdue' ? 'color: var(--lumo-error-text-color); font-weight: bold;'
+            : item.dueState === 'today' ? 'color: var(--lumo-warning-text-color); font-weight: bold;' : ''}"
+        >${item.dueDate}</span>
+      </vaadin-horizontal-layout>""";
+  private static final String ACTIONS_TEMPLATE = """
+      <vaadin-horizontal-layout theme="spacing">
+        <vaadin-button theme="small" @click="${edit}">
+          <vaadin-icon icon="vaadin:edit" slot="prefix"></vaadin-icon>Edit
+        </vaadin-button>
+        <vaadin-button theme="small error" @click="${deleteItem}">
+          <vaadin-icon icon="vaadin:trash" slot="prefix"></vaadin-icon>Delete
+        </vaadin-button>
+      </vaadin-horizontal-layout>""";
+  private static final Map<TodoStatus, String> STATUS_THEMES = new EnumMap<>(Map.of(
+      TodoStatus.TODO, "badge",
+      TodoStatus.IN_PROGRESS, "badge primary",
+      TodoStatus.COMPLETE, "badge success"));
 
   private final UserPreferencesService preferencesService;
   private final TodoItemService todoItemService;
+  private final TodoItemCache todoItemCache;
+  private final TodoItemCounters todoItemCounters;
+  private final TodoItemBroadcaster broadcaster;
+  private final CurrentUser currentUser;
+  private final Timer refreshTimer;
+  private final Timer fetchTimer;
+  private final Timer countTimer;
 
   private Checkbox showTodoCheckbox;
   private Checkbox showInProgressCheckbox;
   private Checkbox showCompleteCheckbox;
+  private TextField searchField;
+  private final Map<TodoStatus, Span> statusCountBadges = new EnumMap<>(TodoStatus.class);
+  private Span overdueBadge;
+  private Span dueTodayBadge;
 
   private UserPreferences currentPreferences;
 
   private TodoItemForm form;
-  private Grid<TodoItem> grid;
+  private Grid<TodoItemRow> grid;
+  private CallbackDataProvider<TodoItemRow, Void> dataProvider;
   private Div emptyStateMessage;
-
-  public MainView(UserPreferencesService preferencesService, TodoItemService todoItemService) {
+  private HorizontalLayout bulkActions;
+  private Registration broadcasterRegistration;
+  // The date due dates are compared against, taken once per fetch rather than per cell
+  private LocalDate today = LocalDate.now();
+
+  public MainView(UserPreferencesService preferencesService, TodoItemService todoItemService,
+                  TodoItemCache todoItemCache, TodoItemCounters todoItemCounters, TodoItemBroadcaster broadcaster,
+                  CurrentUser currentUser, MeterRegistry meterRegistry) {
     this.preferencesService = preferencesService;
     this.todoItemService = todoItemService;
+    this.todoItemCache = todoItemCache;
+    this.todoItemCounters = todoItemCounters;
+    this.broadcaster = broadcaster;
+    this.currentUser = currentUser;
+    this.refreshTimer = Timer.builder("todo.ui.grid.refresh")
+        .description("Time to refresh the grid, including the empty state check")
+        .register(meterRegistry);
+    this.fetchTimer = Timer.builder("todo.ui.grid.load")
+        .description("Time to load grid rows and counts from the cache or database")
+        .tag("query", "fetch")
+        .register(meterRegistry);
+    this.countTimer = Timer.builder("todo.ui.grid.load")
+        .description("Time to load grid rows and counts from the cache or database")
+        .tag("query", "count")
+        .register(meterRegistry);
 
     // Load current preferences
     try {
@@ -81,7 +168,24 @@ public class MainView extends VerticalLayout {
     Button addButton = new Button("Add New TODO");
     addButton.addThemeVariants(ButtonVariant.LUMO_PRIMARY);
     addButton.addClickListener(e -> openFormForNewItem());
-    addButton.getStyle().set("margin-bottom", "var(--lumo-space-m)");
+
+    // Create bulk actions for the selected rows, enabled once the grid exists
+    bulkActions = createBulkActions();
+
+    // Create search box; results are ranked by relevance rather than the column sort
+    searchField = new TextField();
+    searchField.setPlaceholder("Search descriptions and notes");
+    searchField.setPrefixComponent(VaadinIcon.SEARCH.create());
+    searchField.setClearButtonVisible(true);
+    searchField.setWidth("320px");
+    searchField.setValueChangeMode(ValueChangeMode.LAZY);
+    searchField.addValueChangeListener(e -> refreshGrid());
+
+    HorizontalLayout toolbar = new HorizontalLayout(addButton, searchField, bulkActions);
+    toolbar.setAlignItems(Alignment.CENTER);
+    toolbar.getStyle()
+        .set("flex-wrap", "wrap")
+        .set("margin-bottom", "var(--lumo-space-m)");
 
     // Create form
     form = new TodoItemForm();
@@ -98,7 +202,7 @@ public class MainView extends VerticalLayout {
     createGrid();
 
     // Add components to view
-    add(title, filterSection, addButton, form, emptyStateMessage, grid);
+    add(title, filterSection, toolbar, form, emptyStateMessage, grid);
 
     setSizeFull();
     setJustifyContentMode(JustifyContentMode.START);
@@ -109,6 +213,29 @@ public class MainView extends VerticalLayout {
     getStyle().set("margin", "0 auto");
   }
 
+  @Override
+  protected void onAttach(AttachEvent attachEvent) {
+    super.onAttach(attachEvent);
+    // Changes to this user's items from any session, including this one, arrive here once committed and are pushed
+    // to the browser. Other users' changes are dropped on the committing thread without locking this session.
+    UI ui = attachEvent.getUI();
+    String ownerId = currentUser.getId();
+    broadcasterRegistration = broadcaster.register(event -> {
+      if (event.ownerId().equals(ownerId)) {
+        ui.access(() -> applyChanges(event));
+      }
+    });
+  }
+
+  @Override
+  protected void onDetach(DetachEvent detachEvent) {
+    super.onDetach(detachEvent);
+    if (broadcasterRegistration != null) {
+      broadcasterRegistration.remove();
+      broadcasterRegistration = null;
+    }
+  }
+
   private HorizontalLayout createFilterSection() {
     H3 filterLabel = new H3("Filter by Status:");
     filterLabel.getStyle()
@@ -142,11 +269,28 @@ public class MainView extends VerticalLayout {
       refreshGrid();
     });
 
+    // Count badges, read from the maintained counters rather than queried on each refresh
+    for (TodoStatus status : TodoStatus.values()) {
+      Span badge = new Span();
+      badge.getElement().getThemeList().add("badge pill small contrast");
+      statusCountBadges.put(status, badge);
+    }
+    overdueBadge = new Span();
+    overdueBadge.getElement().getThemeList().add("badge pill error");
+    dueTodayBadge = new Span();
+    dueTodayBadge.getElement().getThemeList().add("badge pill");
+    dueTodayBadge.getStyle().set("color", "var(--lumo-warning-text-color)");
+
     HorizontalLayout filterLayout = new HorizontalLayout(
         filterLabel,
         showTodoCheckbox,
+        statusCountBadges.get(TodoStatus.TODO),
         showInProgressCheckbox,
-        showCompleteCheckbox
+        statusCountBadges.get(TodoStatus.IN_PROGRESS),
+        showCompleteCheckbox,
+        statusCountBadges.get(TodoStatus.COMPLETE),
+        overdueBadge,
+        dueTodayBadge
     );
     filterLayout.setAlignItems(Alignment.CENTER);
     filterLayout.setSpacing(true);
@@ -164,6 +308,27 @@ public class MainView extends VerticalLayout {
     }
   }
 
+  private HorizontalLayout createBulkActions() {
+    Button markTodoButton = new Button("Mark To Do", e -> updateSelectedStatus(TodoStatus.TODO));
+    Button markInProgressButton = new Button("Mark In Progress", e -> updateSelectedStatus(TodoStatus.IN_PROGRESS));
+    Button markCompleteButton = new Button("Mark Complete", VaadinIcon.CHECK.create(),
+        e -> updateSelectedStatus(TodoStatus.COMPLETE));
+
+    Button deleteSelectedButton = new Button("Delete Selected", VaadinIcon.TRASH.create(),
+        e -> deleteSelectedItems());
+    deleteSelectedButton.addThemeVariants(ButtonVariant.LUMO_ERROR);
+
+    HorizontalLayout actions = new HorizontalLayout(
+        markTodoButton,
+        markInProgressButton,
+        markCompleteButton,
+        deleteSelectedButton
+    );
+    actions.setSpacing(true);
+    actions.setEnabled(false);
+    return actions;
+  }
+
   private Div createEmptyStateMessage() {
     Div emptyState = new Div();
 
@@ -200,173 +365,66 @@ public class MainView extends VerticalLayout {
     return emptyState;
   }
 
-  private Grid<TodoItem> createGrid() {
-    Grid<TodoItem> todoGrid = new Grid<>(TodoItem.class, false);
+  private Grid<TodoItemRow> createGrid() {
+    // Rows carry only the shown columns; the full item is loaded when it is edited
+    Grid<TodoItemRow> todoGrid = new Grid<>(TodoItemRow.class, false);
     todoGrid.setHeightFull();
     todoGrid.setMinHeight("400px");
     todoGrid.setWidthFull();
     todoGrid.setMultiSort(true);
     todoGrid.setColumnReorderingAllowed(true);
-
-    // Status column - custom component with clickable indicator
-    Grid.Column<TodoItem> statusColumn = todoGrid.addComponentColumn(item -> {
-      Span statusSpan = new Span(item.getStatus().getDisplayLabel());
-      statusSpan.getElement().getThemeList().add("badge");
-
-      // Style based on status
-      switch (item.getStatus()) {
-        case TODO -> statusSpan.getElement().getThemeList().add("badge");
-        case IN_PROGRESS -> statusSpan.getElement().getThemeList().add("badge primary");
-        case COMPLETE -> statusSpan.getElement().getThemeList().add("badge success");
-      }
-
-          // Make it clickable with hover effects
-          statusSpan.getStyle()
-              .set("cursor", "pointer")
-              .set("transition", "all 0.2s ease")
-              .set("user-select", "none");
-
-          // Add hover effect using mouseenter/mouseleave
-          statusSpan.getElement().addEventListener("mouseenter", e -> {
-            statusSpan.getStyle()
-                .set("transform", "scale(1.05)")
-                .set("box-shadow", "0 2px 4px rgba(0, 0, 0, 0.2)");
-          });
-
-          statusSpan.getElement().addEventListener("mouseleave", e -> {
-            statusSpan.getStyle()
-                .set("transform", "scale(1)")
-                .set("box-shadow", "none");
-          });
-
-      statusSpan.getElement().addEventListener("click", event -> {
-        cycleItemStatus(item);
-      });
-
-      return statusSpan;
-        })
+    todoGrid.setSelectionMode(Grid.SelectionMode.MULTI);
+    todoGrid.addSelectionListener(event -> bulkActions.setEnabled(!event.getAllSelectedItems().isEmpty()));
+
+    // Status column - clickable badge, rendered in the browser from the item's label and theme
+    Grid.Column<TodoItemRow> statusColumn = todoGrid.addColumn(LitRenderer.<TodoItemRow>of(STATUS_TEMPLATE)
+            .withProperty("label", row -> row.status().getDisplayLabel())
+            .withProperty("theme", row -> STATUS_THEMES.get(row.status()))
+            .withFunction("cycle", this::cycleItemStatus))
         .setHeader("Status")
         .setKey("status")
         .setFlexGrow(0)
         .setWidth("120px")
         .setResizable(true)
         .setSortable(true)
-        .setComparator((item1, item2) -> item1.getStatus().compareTo(item2.getStatus()));
+        .setSortProperty(TodoSortField.STATUS.getProperty());
 
     // Description column - flexible, takes remaining space
-    todoGrid.addColumn(TodoItem::getDescription)
+    todoGrid.addColumn(TodoItemRow::description)
         .setHeader("Description")
         .setKey("description")
         .setFlexGrow(3)
         .setAutoWidth(false)
         .setResizable(true)
         .setSortable(true)
-        .setComparator((item1, item2) -> {
-          String desc1 = item1.getDescription() != null ? item1.getDescription() : "";
-          String desc2 = item2.getDescription() != null ? item2.getDescription() : "";
-          return desc1.compareToIgnoreCase(desc2);
-        });
+        .setSortProperty(TodoSortField.DESCRIPTION.getProperty());
 
     // Priority column - show empty for null
-    todoGrid.addColumn(item -> item.getPriority() != null ? item.getPriority().toString() : "")
+    todoGrid.addColumn(row -> row.priority() != null ? row.priority().toString() : "")
         .setHeader("Priority")
         .setKey("priority")
         .setFlexGrow(0)
         .setWidth("90px")
         .setResizable(true)
         .setSortable(true)
-        .setComparator((item1, item2) -> {
-          // Nulls last, then sort by priority (1 = highest, 5 = lowest)
-          if (item1.getPriority() == null && item2.getPriority() == null) {return 0;}
-          if (item1.getPriority() == null) {return 1;}
-          if (item2.getPriority() == null) {return -1;}
-          return Integer.compare(item1.getPriority(), item2.getPriority());
-        });
+        .setSortProperty(TodoSortField.PRIORITY.getProperty());
 
     // Due Date column - show empty for null, with visual indicators
-    todoGrid.addComponentColumn(item -> {
-          if (item.getDueDate() == null) {
-            return new Span("");
-          }
-
-          LocalDate today = LocalDate.now();
-          LocalDate dueDate = item.getDueDate();
-          String formattedDate = dueDate.format(DateTimeFormatter.ofPattern("yyyy-MM-dd"));
-
-          HorizontalLayout dateLayout = new HorizontalLayout();
-          dateLayout.setSpacing(true);
-          dateLayout.setAlignItems(Alignment.CENTER);
-
-          Span dateSpan = new Span(formattedDate);
-
-          // Add visual indicators based on due date
-          if (dueDate.isBefore(today)) {
-            // Overdue - red warning style
-            dateSpan.getStyle().set("color", "var(--lumo-error-text-color)");
-            dateSpan.getStyle().set("font-weight", "bold");
-            Icon warningIcon = VaadinIcon.WARNING.create();
-            warningIcon.setColor("var(--lumo-error-color)");
-            warningIcon.setSize("16px");
-            dateLayout.add(warningIcon, dateSpan);
-          } else if (dueDate.isEqual(today)) {
-            // Due today - yellow/warning style
-            dateSpan.getStyle().set("color", "var(--lumo-warning-text-color)");
-            dateSpan.getStyle().set("font-weight", "bold");
-            Icon clockIcon = VaadinIcon.CLOCK.create();
-            clockIcon.setColor("var(--lumo-warning-color)");
-            clockIcon.setSize("16px");
-            dateLayout.add(clockIcon, dateSpan);
-          } else {
-            // Future date - normal style
-            dateLayout.add(dateSpan);
-          }
-
-          return dateLayout;
-        })
+    todoGrid.addColumn(LitRenderer.<TodoItemRow>of(DUE_DATE_TEMPLATE)
+            .withProperty("dueDate", row -> row.dueDate() == null ? "" : DATE_FORMAT.format(row.dueDate()))
+            .withProperty("dueState", row -> dueState(row.dueDate())))
         .setHeader("Due Date")
         .setKey("dueDate")
         .setFlexGrow(1)
         .setWidth("160px")
         .setResizable(true)
         .setSortable(true)
-        .setComparator((item1, item2) -> {
-          // Custom comparator: overdue dates first, then by date, nulls last
-          LocalDate today = LocalDate.now();
-          LocalDate date1 = item1.getDueDate();
-          LocalDate date2 = item2.getDueDate();
-
-          // Handle nulls - nulls last
-          if (date1 == null && date2 == null) {return 0;}
-          if (date1 == null) {return 1;}
-          if (date2 == null) {return -1;}
-
-          // Check if overdue
-          boolean overdue1 = date1.isBefore(today);
-          boolean overdue2 = date2.isBefore(today);
-
-          // Both overdue or both not overdue - sort by date
-          if (overdue1 == overdue2) {
-            return date1.compareTo(date2);
-          }
-
-          // One is overdue, one is not - overdue comes first
-          return overdue1 ? -1 : 1;
-        });
+        .setSortProperty(TodoSortField.DUE_DATE.getProperty());
 
     // Actions column with Edit and Delete buttons
-    todoGrid.addComponentColumn(item -> {
-          Button editButton = new Button("Edit", VaadinIcon.EDIT.create());
-          editButton.addThemeVariants(ButtonVariant.LUMO_SMALL);
-          editButton.addClickListener(e -> editTodoItem(item));
-
-          Button deleteButton = new Button("Delete", VaadinIcon.TRASH.create());
-          deleteButton.addThemeVariants(ButtonVariant.LUMO_SMALL, ButtonVariant.LUMO_ERROR);
-          deleteButton.addClickListener(e -> deleteTodoItem(item));
-
-          HorizontalLayout actions = new HorizontalLayout(editButton, deleteButton);
-          actions.setSpacing(true);
-          return actions;
-        })
+    todoGrid.addColumn(LitRenderer.<TodoItemRow>of(ACTIONS_TEMPLATE)
+            .withFunction("edit", this::editTodoItem)
+            .withFunction("deleteItem", this::deleteTodoItem))
         .setHeader("Actions")
         .setKey("actions")
         .setFlexGrow(0)
@@ -374,14 +432,24 @@ public class MainView extends VerticalLayout {
         .setResizable(true);
 
     // Set default sort order: Due Date (ascending, overdue first) then Priority (ascending)
-    Grid.Column<TodoItem> dueDateColumn = todoGrid.getColumnByKey("dueDate");
-    Grid.Column<TodoItem> priorityColumn = todoGrid.getColumnByKey("priority");
+    Grid.Column<TodoItemRow> dueDateColumn = todoGrid.getColumnByKey("dueDate");
+    Grid.Column<TodoItemRow> priorityColumn = todoGrid.getColumnByKey("priority");
 
-    todoGrid.sort(java.util.List.of(
-        new com.vaadin.flow.component.grid.GridSortOrder<>(dueDateColumn, com.vaadin.flow.data.provider.SortDirection.ASCENDING),
-        new com.vaadin.flow.component.grid.GridSortOrder<>(priorityColumn, com.vaadin.flow.data.provider.SortDirection.ASCENDING)
+    todoGrid.sort(List.of(
+        new GridSortOrder<>(dueDateColumn, SortDirection.ASCENDING),
+        new GridSortOrder<>(priorityColumn, SortDirection.ASCENDING)
     ));
 
+    // Lazy data provider: the database filters, sorts and pages, so only visible rows are loaded
+    // Items are identified by ID so selection survives reloading rows as new instances
+    // While searching, rows come from the search index instead of the cache
+    dataProvider = new CallbackDataProvider<>(
+        query -> fetchTimer.record(() -> fetchRows(query)).stream(),
+        query -> (int) (long) countTimer.record(this::countRows),
+        TodoItemRow::id
+    );
+    todoGrid.setItems(dataProvider);
+
     this.grid = todoGrid;
 
     // Load initial data
@@ -391,37 +459,14 @@ public class MainView extends VerticalLayout {
   }
 
   private void refreshGrid() {
+    // Rows are fetched when the response is written, so they are timed by the data provider instead
+    Timer.Sample sample = Timer.start();
     try {
-      // Apply filtering based on checkbox states
-      List<TodoStatus> statusesToShow = new ArrayList<>();
-
-      if (currentPreferences.getShowTodo()) {
-        statusesToShow.add(TodoStatus.TODO);
-      }
-      if (currentPreferences.getShowInProgress()) {
-        statusesToShow.add(TodoStatus.IN_PROGRESS);
-      }
-      if (currentPreferences.getShowComplete()) {
-        statusesToShow.add(TodoStatus.COMPLETE);
-      }
-
-      // Get filtered items from service
-      List<TodoItem> items;
-      if (statusesToShow.isEmpty()) {
-        // If no statuses selected, show empty list
-        items = new ArrayList<>();
-      } else if (statusesToShow.size() == 3) {
-        // If all statuses selected, get all items (optimization)
-        items = todoItemService.findAll();
-      } else {
-        // Get items with selected statuses
-        items = todoItemService.findByStatus(statusesToShow.toArray(new TodoStatus[0]));
-      }
-
-      grid.setItems(items);
+      dataProvider.refreshAll();
+      updateCountBadges();
 
       // Show/hide empty state message
-      if (items.isEmpty()) {
+      if (countRows() == 0) {
         emptyStateMessage.setVisible(true);
         grid.setVisible(false);
       } else {
@@ -431,36 +476,187 @@ public class MainView extends VerticalLayout {
     } catch (Exception e) {
       logger.error("Failed to refresh grid", e);
       showErrorNotification("Failed to load TODO items. Please try refreshing the page.");
-      grid.setItems(new ArrayList<>());
       emptyStateMessage.setVisible(true);
       grid.setVisible(false);
+    } finally {
+      sample.stop(refreshTimer);
     }
   }
 
+  /**
+   * Load a page of rows, from the search index while searching and otherwise through the cache
+   */
+  private List<TodoItemRow> fetchRows(Query<TodoItemRow, Void> query) {
+    today = LocalDate.now();
+    return isSearching()
+        ? todoItemService.searchRowPage(getSelectedStatuses(), searchField.getValue(),
+            query.getOffset(), query.getLimit())
+        : todoItemCache.findPage(getSelectedStatuses(), toSortOrders(query.getSortOrders()),
+            query.getOffset(), query.getLimit());
+  }
+
+  /**
+   * How a due date compares with today, for the due date template
+   */
+  private String dueState(LocalDate dueDate) {
+    if (dueDate == null || dueDate.isAfter(today)) {
+      return "future";
+    }
+    return dueDate.isEqual(today) ? "today" : "overdue";
+  }
+
+  /**
+   * Show the current item counts in the filter bar
+   */
+  private void updateCountBadges() {
+    try {
+      TodoItemCounters.Counts counts = todoItemCounters.getCounts();
+      statusCountBadges.forEach((status, badge) -> badge.setText(String.valueOf(counts.count(status))));
+      overdueBadge.setText("Overdue: " + counts.overdue());
+      overdueBadge.setVisible(counts.overdue() > 0);
+      dueTodayBadge.setText("Due today: " + counts.dueToday());
+      dueTodayBadge.setVisible(counts.dueToday() > 0);
+    } catch (Exception e) {
+      logger.error("Failed to load TODO item counts", e);
+    }
+  }
+
+  private boolean isSearching() {
+    return searchField != null && !searchField.getValue().isBlank();
+  }
+
+  /**
+   * Number of rows the grid shows, matching the search if there is one
+   */
+  private long countRows() {
+    return isSearching()
+        ? todoItemService.countSearch(getSelectedStatuses(), searchField.getValue())
+        : todoItemCache.countByStatus(getSelectedStatuses());
+  }
+
+  /**
+   * Statuses to show, based on the filter checkboxes
+   */
+  private List<TodoStatus> getSelectedStatuses() {
+    List<TodoStatus> statusesToShow = new ArrayList<>();
+
+    if (currentPreferences.getShowTodo()) {
+      statusesToShow.add(TodoStatus.TODO);
+    }
+    if (currentPreferences.getShowInProgress()) {
+      statusesToShow.add(TodoStatus.IN_PROGRESS);
+    }
+    if (currentPreferences.getShowComplete()) {
+      statusesToShow.add(TodoStatus.COMPLETE);
+    }
+
+    return statusesToShow;
+  }
+
+  /**
+   * Translate the Grid's sort orders into database sort orders
+   */
+  private List<TodoSortOrder> toSortOrders(List<QuerySortOrder> querySortOrders) {
+    List<TodoSortOrder> sortOrders = new ArrayList<>();
+    for (QuerySortOrder querySortOrder : querySortOrders) {
+      TodoSortField.fromProperty(querySortOrder.getSorted()).ifPresent(field ->
+          sortOrders.add(querySortOrder.getDirection() == SortDirection.ASCENDING
+              ? TodoSortOrder.asc(field)
+              : TodoSortOrder.desc(field)));
+    }
+    return sortOrders;
+  }
+
+  /**
+   * Apply committed changes to the grid. Rows that stay visible and in place are refreshed in place; anything that
+   * adds, removes, hides or moves rows changes the row count or order, so the grid is reloaded.
+   */
+  private void applyChanges(TodoItemChangedEvent event) {
+    updateCountBadges();
+    List<TodoStatus> selectedStatuses = getSelectedStatuses();
+    List<TodoSortField> sortFields = toSortOrders(grid.getDataCommunicator().getBackEndSorting()).stream()
+        .map(TodoSortOrder::field)
+        .toList();
+    boolean rowsChanged = event.changes().stream().anyMatch(change ->
+        selectedStatuses.contains(change.previousStatus()) != selectedStatuses.contains(change.status())
+            || movesRow(change, sortFields));
+    // Any edit can change which items match a search, or how they rank
+    if (rowsChanged || isSearching() || event.changes().size() > MAX_ROWS_REFRESHED_IN_PLACE) {
+      refreshGrid();
+      return;
+    }
+
+    try {
+      for (TodoItemChangedEvent.Change change : event.changes()) {
+        // Only reload rows the grid has loaded; the rest are fetched fresh when scrolled to
+        if (selectedStatuses.contains(change.status()) && isLoadedInGrid(change.id())) {
+          // From the primary, which already has the change a read replica may still lack
+          todoItemService.readFromPrimary(() -> todoItemService.findRowById(change.id()))
+              .ifPresent(dataProvider::refreshItem);
+        }
+      }
+    } catch (Exception e) {
+      logger.error("Failed to apply TODO item changes to the grid", e);
+      refreshGrid();
+    }
+  }
+
+  /**
+   * Whether a change can move its row within the grid's sort order. Updates don't carry the previous priority or
+   * description, so any update may move a row when the grid is sorted on them.
+   */
+  private static boolean movesRow(TodoItemChangedEvent.Change change, List<TodoSortField> sortFields) {
+    return sortFields.stream().anyMatch(field -> switch (field) {
+      case STATUS -> change.previousStatus() != change.status();
+      case DUE_DATE -> !Objects.equals(change.previousDueDate(), change.dueDate());
+      case PRIORITY, DESCRIPTION -> change.type() == TodoItemChangedEvent.ChangeType.UPDATED;
+    });
+  }
+
+  private boolean isLoadedInGrid(Long id) {
+    return grid.getDataCommunicator().getKeyMapper().has(TodoItemRow.withId(id));
+  }
+
   private void saveTodoItem(TodoItem item) {
     try {
       todoItemService.save(item);
-      refreshGrid();
       closeForm();
       showSuccessNotification("TODO item saved successfully.");
     } catch (IllegalArgumentException e) {
       logger.warn("Validation error while saving TODO item", e);
       showErrorNotification("Validation error: " + e.getMessage());
+    } catch (OptimisticLockingFailureException e) {
+      logger.warn("TODO item was modified concurrently", e);
+      showErrorNotification("This TODO item was changed by someone else. Please reopen it and try again.");
+      refreshGrid();
+      closeForm();
     } catch (Exception e) {
       logger.error("Failed to save TODO item", e);
       showErrorNotification("Failed to save TODO item. Please try again.");
     }
   }
 
-  private void editTodoItem(TodoItem item) {
-    form.setTodoItem(item);
-    form.setVisible(true);
+  private void editTodoItem(TodoItemRow row) {
+    // Grid rows only carry the shown columns, so load the full item
+    try {
+      Optional<TodoItem> currentItem = todoItemService.findById(row.id());
+      if (currentItem.isEmpty()) {
+        showErrorNotification("This TODO item no longer exists.");
+        refreshGrid();
+        return;
+      }
+      form.setTodoItem(currentItem.get());
+      form.setVisible(true);
+    } catch (Exception e) {
+      logger.error("Failed to load TODO item for editing", e);
+      showErrorNotification("Failed to load TODO item. Please try again.");
+    }
   }
 
-  private void deleteTodoItem(TodoItem item) {
+  private void deleteTodoItem(TodoItemRow row) {
     ConfirmDialog dialog = new ConfirmDialog();
     dialog.setHeader("Delete TODO Item");
-    dialog.setText("Are you sure you want to delete this TODO item: \"" + item.getDescription() + "\"?");
+    dialog.setText("Are you sure you want to delete this TODO item: \"" + row.description() + "\"?");
 
     dialog.setCancelable(true);
     dialog.setCancelText("Cancel");
@@ -470,8 +666,7 @@ public class MainView extends VerticalLayout {
 
     dialog.addConfirmListener(event -> {
       try {
-        todoItemService.delete(item.getId());
-        refreshGrid();
+        todoItemService.delete(row.id());
         showSuccessNotification("TODO item deleted successfully.");
       } catch (IllegalArgumentException e) {
         logger.warn("Validation error while deleting TODO item", e);
@@ -485,10 +680,9 @@ public class MainView extends VerticalLayout {
     dialog.open();
   }
 
-  private void cycleItemStatus(TodoItem item) {
+  private void cycleItemStatus(TodoItemRow row) {
     try {
-      todoItemService.cycleStatus(item.getId());
-      refreshGrid();
+      todoItemService.cycleStatus(row.id());
     } catch (IllegalArgumentException e) {
       logger.warn("Validation error while cycling status", e);
       showErrorNotification("Error: " + e.getMessage());
@@ -498,6 +692,57 @@ public class MainView extends VerticalLayout {
     }
   }
 
+  private void updateSelectedStatus(TodoStatus status) {
+    List<Long> ids = getSelectedIds();
+    try {
+      int updated = todoItemService.updateStatus(ids, status);
+      grid.deselectAll();
+      showSuccessNotification(updated + " TODO items marked " + status.getDisplayLabel() + ".");
+    } catch (IllegalArgumentException e) {
+      logger.warn("Validation error while updating selected TODO items", e);
+      showErrorNotification("Error: " + e.getMessage());
+    } catch (Exception e) {
+      logger.error("Failed to update selected TODO items", e);
+      showErrorNotification("Failed to update the selected TODO items. Please try again.");
+    }
+  }
+
+  private void deleteSelectedItems() {
+    List<Long> ids = getSelectedIds();
+
+    ConfirmDialog dialog = new ConfirmDialog();
+    dialog.setHeader("Delete TODO Items");
+    dialog.setText("Are you sure you want to delete " + ids.size() + " selected TODO items?");
+
+    dialog.setCancelable(true);
+    dialog.setCancelText("Cancel");
+
+    dialog.setConfirmText("Delete");
+    dialog.setConfirmButtonTheme("error primary");
+
+    dialog.addConfirmListener(event -> {
+      try {
+        int deleted = todoItemService.deleteAll(ids);
+        grid.deselectAll();
+        showSuccessNotification(deleted + " TODO items deleted successfully.");
+      } catch (IllegalArgumentException e) {
+        logger.warn("Validation error while deleting selected TODO items", e);
+        showErrorNotification("Error: " + e.getMessage());
+      } catch (Exception e) {
+        logger.error("Failed to delete selected TODO items", e);
+        showErrorNotification("Failed to delete the selected TODO items. Please try again.");
+      }
+    });
+
+    dialog.open();
+  }
+
+  private List<Long> getSelectedIds() {
+    return grid.getSelectedItems().stream()
+        .map(TodoItemRow::id)
+        .toList();
+  }
+
   private void closeForm() {
     form.setVisible(false);
     form.clear();
@@ -0,0 +1,64 @@
+package com.ssta.todo;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/**
+ * Sends read-only transactions to a read replica when todo.datasource.replica.url is set.
+ * <p>
+ * The application's DataSource fetches a connection only when the first statement runs, by which time the
+ * transaction has marked it read-only or not, and takes it from the replica pool if it is read-only and from the
+ * primary pool otherwise. The primary pool is configured by spring.datasource as usual; the replica pool by
+ * todo.datasource.replica, with the same credentials unless they are overridden. Replicas lag behind the primary,
+ * so a read straight after a write may not see it yet; reads whose results outlive the moment, such as cached grid
+ * pages and counts, go through {@link TodoItemService#readFromPrimary} instead.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty("todo.datasource.replica.url")
+public class ReadReplicaConfiguration {
+
+  @Bean
+  @ConfigurationProperties("spring.datasource.hikari")
+  public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+    HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    dataSource.setPoolName("primary");
+    return dataSource;
+  }
+
+  @Bean
+  @ConfigurationProperties("todo.datasource.replica.hikari")
+  public HikariDataSource replicaDataSource(
+      DataSourceProperties properties,
+      @Value("${todo.datasource.replica.url}") String url,
+      @Value("${todo.datasource.replica.username:${spring.datasource.username:}}") String username,
+      @Value("${todo.datasource.replica.password:${spring.datasource.password:}}") String password) {
+    HikariDataSource dataSource = properties.initializeDataSourceBuilder()
+        .type(HikariDataSource.class)
+        .url(url)
+        .username(username)
+        .password(password)
+        .build();
+    dataSource.setPoolName("replica");
+    dataSource.setReadOnly(true);
+    return dataSource;
+  }
+
+  @Bean
+  @Primary
+  public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+                               @Qualifier("replicaDataSource") DataSource replicaDataSource) {
+    LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(primaryDataSource);
+    dataSource.setReadOnlyDataSource(replicaDataSource);
+    return dataSource;
+  }
+}
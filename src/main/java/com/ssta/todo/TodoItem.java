@@ -1,37 +1,41 @@
 package com.ssta.todo;
 
 import jakarta.persistence.*;
-import jakarta.validation.constraints.Max;
-import jakarta.validation.constraints.Min;
-import jakarta.validation.constraints.NotBlank;
-import jakarta.validation.constraints.Size;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "todo_items")
+@Table(name = "todo_items", indexes = {
+    // Every query is scoped to one owner, so owner_id leads; status serves the filters and counts, and due_date and
+    // priority follow for the default grid ordering. A user's rows are one range whatever the size of the table.
+    @Index(name = "idx_todo_items_owner_status_due_date", columnList = "owner_id, status, due_date, priority"),
+    @Index(name = "idx_todo_items_owner_updated_date", columnList = "owner_id, updated_date")
+})
 public class TodoItem {
 
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "todo_items_seq")
+  @SequenceGenerator(name = "todo_items_seq", sequenceName = "todo_items_seq", allocationSize = 50)
   private Long id;
 
-  @NotBlank(message = "Description is required")
-  @Size(max = 400, message = "Description must not exceed 400 characters")
-  @Column(nullable = false, length = 400)
+  // The user the item belongs to; set by TodoItemService from the current user
+  @ColumnDefault("'" + CurrentUser.DEFAULT_USER + "'")
+  @Column(name = "owner_id", nullable = false, updatable = false, length = CurrentUser.MAX_LENGTH)
+  private String ownerId;
+
+  // Field rules are in TodoItemValidator
+  @Column(nullable = false, length = TodoItemValidator.MAX_DESCRIPTION_LENGTH)
   private String description;
 
-  @Size(max = 400, message = "Detailed notes must not exceed 400 characters")
-  @Column(length = 400)
+  @Column(length = TodoItemValidator.MAX_NOTES_LENGTH)
   private String detailedNotes;
 
   @Enumerated(EnumType.STRING)
   @Column(nullable = false)
   private TodoStatus status = TodoStatus.TODO;
 
-  @Min(value = 1, message = "Priority must be between 1 and 5")
-  @Max(value = 5, message = "Priority must be between 1 and 5")
   @Column
   private Integer priority;
 
@@ -44,6 +48,12 @@ public class TodoItem {
   @Column(nullable = false)
   private LocalDateTime updatedDate;
 
+  // Optimistic locking for the edit form; bulk and status-cycle updates increment it in SQL
+  @Version
+  @ColumnDefault("0")
+  @Column(nullable = false)
+  private Long version;
+
   // Constructors
   public TodoItem() {
   }
@@ -73,6 +83,14 @@ public class TodoItem {
     this.id = id;
   }
 
+  public String getOwnerId() {
+    return ownerId;
+  }
+
+  public void setOwnerId(String ownerId) {
+    this.ownerId = ownerId;
+  }
+
   public String getDescription() {
     return description;
   }
@@ -128,4 +146,12 @@ public class TodoItem {
   public void setUpdatedDate(LocalDateTime updatedDate) {
     this.updatedDate = updatedDate;
   }
+
+  public Long getVersion() {
+    return version;
+  }
+
+  public void setVersion(Long version) {
+    this.version = version;
+  }
 }
@@ -0,0 +1,46 @@
+package com.ssta.todo;
+
+import com.vaadin.flow.shared.Registration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Forwards committed {@link TodoItemChangedEvent}s to every open view, so each can update the changed rows
+ */
+@Component
+public class TodoItemBroadcaster {
+
+  private static final Logger logger = LoggerFactory.getLogger(TodoItemBroadcaster.class);
+
+  private final List<Consumer<TodoItemChangedEvent>> listeners = new CopyOnWriteArrayList<>();
+
+  /**
+   * Register a listener for committed changes. Listeners are called on the committing thread, so views should
+   * hand the event over with {@code UI.access}.
+   */
+  public Registration register(Consumer<TodoItemChangedEvent> listener) {
+    listeners.add(listener);
+    return () -> listeners.remove(listener);
+  }
+
+  // Runs after the cache has been invalidated, so listeners reloading rows see the new data
+  @Order(Ordered.LOWEST_PRECEDENCE)
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onTodoItemChanged(TodoItemChangedEvent event) {
+    for (Consumer<TodoItemChangedEvent> listener : listeners) {
+      try {
+        listener.accept(event);
+      } catch (Exception e) {
+        logger.error("Failed to deliver TodoItem change to a listener", e);
+      }
+    }
+  }
+}
@@ -0,0 +1,249 @@
+package com.ssta.todo;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Read-through cache in front of {@link TodoItemService} for the grid's pages and counts of the {@link CurrentUser}.
+ * <p>
+ * Counts are cached per user and status, and pages are tagged with the user and statuses they show. A
+ * {@link TodoItemChangedEvent} only invalidates the pages and counts of the statuses it touched for its owner, so
+ * toggling a filter back and forth is served from memory until one of the user's items with that status changes.
+ * Pages are bounded across all users, evicting the least recently used. Pages and counts are loaded from the primary
+ * database, as one loaded from a lagging read replica would stay cached until the next change.
+ */
+@Component
+public class TodoItemCache implements MeterBinder {
+
+  private static final Logger logger = LoggerFactory.getLogger(TodoItemCache.class);
+
+  private final TodoItemService todoItemService;
+  private final CurrentUser currentUser;
+  private final int maxPages;
+
+  // All guarded by this. Generations are bumped on invalidation, so a load that raced with a change is not cached.
+  private final Map<CountKey, Long> counts = new HashMap<>();
+  private final Map<PageKey, List<TodoItemRow>> pages;
+  private final Map<String, Generations> generations = new HashMap<>();
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+
+  public TodoItemCache(TodoItemService todoItemService, CurrentUser currentUser,
+                       @Value("${todo.cache.max-pages:500}") int maxPages) {
+    this.todoItemService = todoItemService;
+    this.currentUser = currentUser;
+    this.maxPages = maxPages;
+    this.pages = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<PageKey, List<TodoItemRow>> eldest) {
+        if (size() > TodoItemCache.this.maxPages) {
+          evictions.increment();
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
+  /**
+   * Cache statistics, for monitoring
+   */
+  public record Stats(long hits, long misses, long evictions, int pages) {
+  }
+
+  private record PageKey(String ownerId, Set<TodoStatus> statuses, List<TodoSortOrder> sortOrders,
+                         int offset, int limit) {
+  }
+
+  private record CountKey(String ownerId, TodoStatus status) {
+  }
+
+  /**
+   * Invalidation generations of one user's counts and pages, per status
+   */
+  private static final class Generations {
+
+    private final long[] counts = new long[TodoStatus.values().length];
+    private final long[] pages = new long[TodoStatus.values().length];
+  }
+
+  /**
+   * Fetch one page of grid rows with the given statuses, see {@link TodoItemService#findRowPage}. Rows are
+   * immutable, so pages are shared between sessions as they are.
+   */
+  public List<TodoItemRow> findPage(Collection<TodoStatus> statuses, List<TodoSortOrder> sortOrders,
+                                 int offset, int limit) {
+    if (statuses == null || statuses.isEmpty()) {
+      return List.of();
+    }
+
+    String ownerId = currentUser.getId();
+    Set<TodoStatus> statusSet = EnumSet.copyOf(statuses);
+    PageKey key = new PageKey(ownerId, statusSet, List.copyOf(sortOrders), offset, limit);
+    long generation;
+    synchronized (this) {
+      List<TodoItemRow> page = pages.get(key);
+      if (page != null) {
+        hits.increment();
+        return page;
+      }
+      generation = generationOf(generations(ownerId).pages, statusSet);
+    }
+
+    misses.increment();
+    List<TodoItemRow> page = List.copyOf(todoItemService.readFromPrimary(
+        () -> todoItemService.findRowPage(statusSet, sortOrders, offset, limit)));
+    synchronized (this) {
+      if (generationOf(generations(ownerId).pages, statusSet) == generation) {
+        pages.put(key, page);
+      }
+    }
+    return page;
+  }
+
+  /**
+   * Count TodoItems with the given statuses, see {@link TodoItemService#countByStatus}
+   */
+  public long countByStatus(Collection<TodoStatus> statuses) {
+    if (statuses == null || statuses.isEmpty()) {
+      return 0;
+    }
+
+    String ownerId = currentUser.getId();
+    long total = 0;
+    for (TodoStatus status : EnumSet.copyOf(statuses)) {
+      total += countByStatus(new CountKey(ownerId, status));
+    }
+    return total;
+  }
+
+  private long countByStatus(CountKey key) {
+    int index = key.status().ordinal();
+    long generation;
+    synchronized (this) {
+      Long count = counts.get(key);
+      if (count != null) {
+        hits.increment();
+        return count;
+      }
+      generation = generations(key.ownerId()).counts[index];
+    }
+
+    misses.increment();
+    long count = todoItemService.readFromPrimary(() -> todoItemService.countByStatus(List.of(key.status())));
+    synchronized (this) {
+      if (generations(key.ownerId()).counts[index] == generation) {
+        counts.put(key, count);
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Invalidate the pages and counts affected by committed changes, before other listeners reload them
+   */
+  @Order(Ordered.HIGHEST_PRECEDENCE)
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onTodoItemChanged(TodoItemChangedEvent event) {
+    String ownerId = event.ownerId();
+    Set<TodoStatus> pageStatuses = event.affectedStatuses();
+    Set<TodoStatus> countStatuses = event.countChangedStatuses();
+
+    synchronized (this) {
+      Generations ownerGenerations = generations(ownerId);
+      for (TodoStatus status : countStatuses) {
+        counts.remove(new CountKey(ownerId, status));
+        ownerGenerations.counts[status.ordinal()]++;
+      }
+      for (TodoStatus status : pageStatuses) {
+        ownerGenerations.pages[status.ordinal()]++;
+      }
+      pages.keySet().removeIf(key -> key.ownerId().equals(ownerId) && containsAny(key.statuses(), pageStatuses));
+    }
+    logger.debug("Invalidated cached pages for {} and counts for {} of {}", pageStatuses, countStatuses, ownerId);
+  }
+
+  /**
+   * Remove all cached pages and counts
+   */
+  public synchronized void clear() {
+    counts.clear();
+    pages.clear();
+    for (Generations ownerGenerations : generations.values()) {
+      for (TodoStatus status : TodoStatus.values()) {
+        ownerGenerations.counts[status.ordinal()]++;
+        ownerGenerations.pages[status.ordinal()]++;
+      }
+    }
+  }
+
+  public synchronized Stats getStats() {
+    return new Stats(hits.sum(), misses.sum(), evictions.sum(), pages.size());
+  }
+
+  /**
+   * Publish the statistics as todo.cache.* metrics
+   */
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    FunctionCounter.builder("todo.cache.requests", hits, LongAdder::sum)
+        .description("Cache lookups served from memory")
+        .tag("result", "hit")
+        .register(registry);
+    FunctionCounter.builder("todo.cache.requests", misses, LongAdder::sum)
+        .description("Cache lookups loaded from the database")
+        .tag("result", "miss")
+        .register(registry);
+    FunctionCounter.builder("todo.cache.evictions", evictions, LongAdder::sum)
+        .description("Pages evicted to stay within the size limit")
+        .register(registry);
+    Gauge.builder("todo.cache.pages", this, cache -> cache.getStats().pages())
+        .description("Pages currently cached")
+        .register(registry);
+  }
+
+  /**
+   * The generations of a user, kept once created so a load can't miss an invalidation. Caller must hold this.
+   */
+  private Generations generations(String ownerId) {
+    return generations.computeIfAbsent(ownerId, id -> new Generations());
+  }
+
+  private static long generationOf(long[] generations, Set<TodoStatus> statuses) {
+    // Generations only increase, so the sum changes whenever any of them does
+    long generation = 0;
+    for (TodoStatus status : statuses) {
+      generation += generations[status.ordinal()];
+    }
+    return generation;
+  }
+
+  private static boolean containsAny(Set<TodoStatus> statuses, Set<TodoStatus> candidates) {
+    for (TodoStatus candidate : candidates) {
+      if (statuses.contains(candidate)) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
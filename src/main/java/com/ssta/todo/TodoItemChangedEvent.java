@@ -0,0 +1,108 @@
+package com.ssta.todo;
+
+import java.time.LocalDate;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Published by {@link TodoItemService} for every mutation, listing each TodoItem it changed. A mutation only changes
+ * the items of one owner. Listeners should use {@code @TransactionalEventListener} so they only see committed changes.
+ */
+public record TodoItemChangedEvent(String ownerId, List<Change> changes) {
+
+  public enum ChangeType {
+    CREATED,
+    UPDATED,
+    STATUS_CHANGED,
+    DELETED
+  }
+
+  /**
+   * A change to a single TodoItem. previousStatus is null for created items and status is null for deleted items.
+   * The due dates are the item's before and after the change, either of which may be null. Created and updated
+   * items also carry their content, so the change holds the item's whole state after it. version is the item's
+   * version after the change, and null for deleted items.
+   */
+  public record Change(ChangeType type, Long id, TodoStatus previousStatus, TodoStatus status,
+                       LocalDate previousDueDate, LocalDate dueDate, Long version, Content content) {
+
+    public static Change created(TodoItem item) {
+      return new Change(ChangeType.CREATED, item.getId(), null, item.getStatus(), null, item.getDueDate(),
+          item.getVersion(), Content.of(item));
+    }
+
+    public static Change updated(TodoItem item, TodoStatus previousStatus, LocalDate previousDueDate) {
+      return new Change(ChangeType.UPDATED, item.getId(), previousStatus, item.getStatus(), previousDueDate,
+          item.getDueDate(), item.getVersion(), Content.of(item));
+    }
+
+    public static Change statusChanged(Long id, TodoStatus previousStatus, TodoStatus status, LocalDate dueDate,
+                                       Long version) {
+      return new Change(ChangeType.STATUS_CHANGED, id, previousStatus, status, dueDate, dueDate, version, null);
+    }
+
+    public static Change deleted(Long id, TodoStatus previousStatus, LocalDate previousDueDate) {
+      return new Change(ChangeType.DELETED, id, previousStatus, null, previousDueDate, null, null, null);
+    }
+
+    /**
+     * Whether this change moves the item between statuses, or in or out of existence
+     */
+    public boolean changesStatusCounts() {
+      return previousStatus != status;
+    }
+  }
+
+  /**
+   * The fields of a created or updated item besides its status and due date
+   */
+  public record Content(String description, String detailedNotes, Integer priority) {
+
+    static Content of(TodoItem item) {
+      return new Content(item.getDescription(), item.getDetailedNotes(), item.getPriority());
+    }
+  }
+
+  public TodoItemChangedEvent {
+    changes = List.copyOf(changes);
+  }
+
+  public static TodoItemChangedEvent of(String ownerId, Change change) {
+    return new TodoItemChangedEvent(ownerId, List.of(change));
+  }
+
+  /**
+   * Statuses whose items were changed in any way
+   */
+  public Set<TodoStatus> affectedStatuses() {
+    Set<TodoStatus> statuses = EnumSet.noneOf(TodoStatus.class);
+    for (Change change : changes) {
+      if (change.previousStatus() != null) {
+        statuses.add(change.previousStatus());
+      }
+      if (change.status() != null) {
+        statuses.add(change.status());
+      }
+    }
+    return statuses;
+  }
+
+  /**
+   * Statuses whose item counts may have changed
+   */
+  public Set<TodoStatus> countChangedStatuses() {
+    Set<TodoStatus> statuses = EnumSet.noneOf(TodoStatus.class);
+    for (Change change : changes) {
+      if (change.changesStatusCounts()) {
+        if (change.previousStatus() != null) {
+          statuses.add(change.previousStatus());
+        }
+        if (change.status() != null) {
+          statuses.add(change.status());
+        }
+      }
+    }
+    return statuses;
+  }
+}
@@ -0,0 +1,292 @@
+package com.ssta.todo;
+
+import com.ssta.todo.TodoItemTransferService.Format;
+import com.ssta.todo.TodoItemTransferService.ImportResult;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ProblemDetail;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * REST API for TodoItems, for automation and bulk import and export. Requests work on the items of the
+ * {@link CurrentUser}; other users' items are reported as not found.
+ */
+@RestController
+@RequestMapping("/api/todos")
+public class TodoItemController {
+
+  private static final int DEFAULT_PAGE_SIZE = 50;
+  private static final int MAX_PAGE_SIZE = 1000;
+  // Log entries of all users looked at per events request, and the longest an events request may wait for one
+  private static final int MAX_EVENTS_SCANNED = 100_000;
+  private static final int MAX_EVENTS_WAIT_SECONDS = 30;
+
+  private final TodoItemService todoItemService;
+  private final TodoItemTransferService transferService;
+  private final TodoItemEventLog eventLog;
+  private final CurrentUser currentUser;
+  private final Executor taskExecutor;
+
+  public TodoItemController(TodoItemService todoItemService, TodoItemTransferService transferService,
+                            TodoItemEventLog eventLog, CurrentUser currentUser,
+                            @Qualifier("applicationTaskExecutor") Executor taskExecutor) {
+    this.todoItemService = todoItemService;
+    this.transferService = transferService;
+    this.eventLog = eventLog;
+    this.currentUser = currentUser;
+    this.taskExecutor = taskExecutor;
+  }
+
+  /**
+   * One page of a listing, with the cursor for the next page if there may be more
+   */
+  public record Page(List<TodoItemDto> items, String nextCursor) {
+  }
+
+  /**
+   * The status of a TodoItem after cycling it
+   */
+  public record StatusResponse(Long id, TodoStatus status) {
+  }
+
+  /**
+   * Logged changes, and the sequence number to continue after
+   */
+  public record EventPage(List<TodoItemEventLog.Entry> events, long lastSequence) {
+  }
+
+  /**
+   * List TodoItems with the given statuses (all if none), ordered by due date, priority and ID with nulls last.
+   * Pass the returned nextCursor as cursor to fetch the following page.
+   */
+  @GetMapping
+  public Page list(@RequestParam(name = "status", required = false) List<TodoStatus> statuses,
+                   @RequestParam(required = false) String cursor,
+                   @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int limit) {
+    if (limit < 1 || limit > MAX_PAGE_SIZE) {
+      throw new IllegalArgumentException("Limit must be between 1 and " + MAX_PAGE_SIZE);
+    }
+    TodoItemCursor after = cursor == null || cursor.isEmpty() ? null : TodoItemCursor.decode(cursor);
+
+    List<TodoItem> items = todoItemService.findPageAfter(statusesOrAll(statuses), after, limit);
+    String nextCursor = items.size() < limit ? null : TodoItemCursor.after(items.get(items.size() - 1)).encode();
+    return new Page(items.stream().map(TodoItemDto::from).toList(), nextCursor);
+  }
+
+  /**
+   * Search TodoItems with the given statuses (all if none) by words in their description and detailed notes, best
+   * matches first. The last word also matches longer words starting with it unless followed by a space.
+   */
+  @GetMapping("/search")
+  public List<TodoItemDto> search(@RequestParam String q,
+                                  @RequestParam(name = "status", required = false) List<TodoStatus> statuses,
+                                  @RequestParam(defaultValue = "0") int offset,
+                                  @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int limit) {
+    if (limit < 1 || limit > MAX_PAGE_SIZE) {
+      throw new IllegalArgumentException("Limit must be between 1 and " + MAX_PAGE_SIZE);
+    }
+    return todoItemService.searchPage(statusesOrAll(statuses), q, offset, limit).stream()
+        .map(TodoItemDto::from)
+        .toList();
+  }
+
+  /**
+   * Stream all TodoItems with the given statuses (all if none) as JSON lines (the default) or CSV, in ID order.
+   * Rows are written as they are read, so the export runs in constant memory however many items there are.
+   */
+  @GetMapping("/export")
+  public ResponseEntity<StreamingResponseBody> export(
+      @RequestParam(name = "status", required = false) List<TodoStatus> statuses,
+      @RequestParam(defaultValue = "jsonl") String format) {
+    Format exportFormat = parseFormat(format);
+    EnumSet<TodoStatus> exportStatuses = statusesOrAll(statuses);
+    // The body is written on an async thread once this one has returned, so it runs as the requesting user explicitly
+    String userId = currentUser.getId();
+    StreamingResponseBody body = out -> currentUser.callAs(userId,
+        () -> transferService.exportItems(out, exportFormat, exportStatuses));
+    return ResponseEntity.ok()
+        .contentType(MediaType.parseMediaType(exportFormat.getMediaType()))
+        .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+            .filename(exportFormat == Format.CSV ? "todo-items.csv" : "todo-items.jsonl").build().toString())
+        .body(body);
+  }
+
+  /**
+   * Create a TodoItem for each row of a JSON lines (the default) or CSV request body, in the format written by the
+   * export. The body is read as it arrives, so files of any size can be imported.
+   */
+  @PostMapping("/import")
+  public ImportResult importItems(InputStream body, @RequestParam(defaultValue = "jsonl") String format) {
+    return transferService.importItems(body, parseFormat(format));
+  }
+
+  /**
+   * Changes to TodoItems logged after the given sequence number, oldest first, so clients can follow changes instead
+   * of reading the items again. Pass the returned lastSequence as after to continue. With wait, waits up to that
+   * many seconds for a change if there are none yet, without holding a request thread. Fails with 410 if changes
+   * after the given number are no longer logged.
+   */
+  @GetMapping("/events")
+  public DeferredResult<EventPage> events(@RequestParam(defaultValue = "0") long after,
+                                          @RequestParam(defaultValue = "" + MAX_PAGE_SIZE) int limit,
+                                          @RequestParam(defaultValue = "0") int wait) {
+    if (after < 0) {
+      throw new IllegalArgumentException("After must not be negative");
+    }
+    if (limit < 1 || limit > MAX_PAGE_SIZE) {
+      throw new IllegalArgumentException("Limit must be between 1 and " + MAX_PAGE_SIZE);
+    }
+    if (wait < 0 || wait > MAX_EVENTS_WAIT_SECONDS) {
+      throw new IllegalArgumentException("Wait must be between 0 and " + MAX_EVENTS_WAIT_SECONDS + " seconds");
+    }
+    if (after < eventLog.retainedAfter()) {
+      throw new ResponseStatusException(HttpStatus.GONE,
+          "Changes after " + after + " are no longer logged, read the items again and follow from lastSequence");
+    }
+
+    DeferredResult<EventPage> result = new DeferredResult<>();
+    pollEvents(result, currentUser.getId(), after, limit, System.nanoTime() + Duration.ofSeconds(wait).toNanos());
+    return result;
+  }
+
+  /**
+   * Set the result to the owner's changes after the given sequence number if there are any or the deadline has
+   * passed, and otherwise to try again on the task executor once another change is logged
+   */
+  private void pollEvents(DeferredResult<EventPage> result, String ownerId, long after, int limit, long deadline) {
+    EventPage page = readEvents(ownerId, after, limit);
+    long remaining = deadline - System.nanoTime();
+    if (!page.events().isEmpty() || remaining <= 0) {
+      result.setResult(page);
+      return;
+    }
+
+    CompletableFuture<Void> logged = eventLog.whenLoggedAfter(page.lastSequence());
+    // Stop waiting if the request ends first, for example when the client disconnects
+    result.onCompletion(() -> logged.cancel(false));
+    logged.orTimeout(remaining, TimeUnit.NANOSECONDS).whenCompleteAsync((ignored, timedOut) -> {
+      try {
+        if (timedOut != null) {
+          result.setResult(page);
+        } else {
+          pollEvents(result, ownerId, page.lastSequence(), limit, deadline);
+        }
+      } catch (RuntimeException e) {
+        result.setErrorResult(e);
+      }
+    }, taskExecutor);
+  }
+
+  private EventPage readEvents(String ownerId, long after, int limit) {
+    List<TodoItemEventLog.Entry> events = new ArrayList<>();
+    TodoItemEventLog.Tailer tailer = eventLog.tail(after);
+    tailer.poll(entry -> {
+      if (!entry.ownerId().equals(ownerId)) {
+        return true;
+      }
+      if (events.size() == limit) {
+        return false;
+      }
+      events.add(entry);
+      return true;
+    }, MAX_EVENTS_SCANNED);
+    // Only numbers of records read are handed out, as unused numbers after the last record are reused on restart
+    return new EventPage(events, tailer.lastSequence());
+  }
+
+  @GetMapping("/{id}")
+  public TodoItemDto get(@PathVariable Long id) {
+    return todoItemService.findById(id)
+        .map(TodoItemDto::from)
+        .orElseThrow(() -> new TodoItemNotFoundException(id));
+  }
+
+  @PostMapping
+  public ResponseEntity<TodoItemDto> create(@RequestBody TodoItemDto request) {
+    TodoItem item = new TodoItem();
+    request.applyTo(item);
+    item.setVersion(null);
+    TodoItem savedItem = todoItemService.save(item);
+    return ResponseEntity
+        .created(ServletUriComponentsBuilder.fromCurrentRequest().path("/{id}")
+            .buildAndExpand(savedItem.getId()).toUri())
+        .body(TodoItemDto.from(savedItem));
+  }
+
+  /**
+   * Replace the editable fields of a TodoItem. If the request includes a version, the update fails with 409 when the
+   * item has changed since that version.
+   */
+  @PutMapping("/{id}")
+  public TodoItemDto update(@PathVariable Long id, @RequestBody TodoItemDto request) {
+    TodoItem item = todoItemService.findById(id).orElseThrow(() -> new TodoItemNotFoundException(id));
+    request.applyTo(item);
+    return TodoItemDto.from(todoItemService.save(item));
+  }
+
+  @DeleteMapping("/{id}")
+  public ResponseEntity<Void> delete(@PathVariable Long id) {
+    todoItemService.delete(id);
+    return ResponseEntity.noContent().build();
+  }
+
+  /**
+   * Advance a TodoItem to its next status
+   */
+  @PostMapping("/{id}/cycle")
+  public StatusResponse cycleStatus(@PathVariable Long id) {
+    return new StatusResponse(id, todoItemService.cycleStatus(id));
+  }
+
+  @ExceptionHandler(TodoItemNotFoundException.class)
+  public ProblemDetail handleNotFound(TodoItemNotFoundException e) {
+    return ProblemDetail.forStatusAndDetail(HttpStatus.NOT_FOUND, e.getMessage());
+  }
+
+  @ExceptionHandler(IllegalArgumentException.class)
+  public ProblemDetail handleInvalidRequest(IllegalArgumentException e) {
+    return ProblemDetail.forStatusAndDetail(HttpStatus.BAD_REQUEST, e.getMessage());
+  }
+
+  @ExceptionHandler(OptimisticLockingFailureException.class)
+  public ProblemDetail handleConflict(OptimisticLockingFailureException e) {
+    return ProblemDetail.forStatusAndDetail(HttpStatus.CONFLICT,
+        "The TODO item was modified by someone else, reload it and try again");
+  }
+
+  private static Format parseFormat(String format) {
+    return Format.fromName(format)
+        .orElseThrow(() -> new IllegalArgumentException("Unknown format " + format + ", expected csv or jsonl"));
+  }
+
+  private static EnumSet<TodoStatus> statusesOrAll(List<TodoStatus> statuses) {
+    return statuses == null || statuses.isEmpty() ? EnumSet.allOf(TodoStatus.class) : EnumSet.copyOf(statuses);
+  }
+}
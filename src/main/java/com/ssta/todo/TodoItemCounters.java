@@ -0,0 +1,351 @@
+package com.ssta.todo;
+
+import com.ssta.todo.TodoItemChangedEvent.Change;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Each user's item counts per status, and of their open items that are overdue or due today, for the filter bar
+ * badges.
+ * <p>
+ * Counts are loaded once for all users with a GROUP BY query and then kept up to date from
+ * {@link TodoItemChangedEvent}s, so reading them costs nothing however many items there are. Items due after today
+ * are counted per date, so when the date changes the items due on the new day move into the due today count and
+ * yesterday's into overdue. A reconciliation job compares the counts with the database and corrects them if they
+ * have drifted, but only when no change committed around its query, so it never replaces them with older counts.
+ * <p>
+ * Counts are only ever loaded outside this object's lock. Change events arrive after commit while the in-memory
+ * store may still hold its write lock, so a load waiting for the store under the lock would deadlock with them.
+ */
+@Component
+public class TodoItemCounters {
+
+  private static final Logger logger = LoggerFactory.getLogger(TodoItemCounters.class);
+  private static final int STATUS_COUNT = TodoStatus.values().length;
+  private static final int MAX_LOAD_ATTEMPTS = 5;
+
+  private final TodoItemService todoItemService;
+  private final CurrentUser currentUser;
+  private final Counter corrections;
+
+  // All guarded by this; null until loaded. Users who have never had items have no state.
+  private Map<String, State> states;
+  // The number of changes whose transaction has begun to commit, and those of them not yet completed
+  private long changesCommitting;
+  private final Set<TodoItemChangedEvent> inFlight = Collections.newSetFromMap(new IdentityHashMap<>());
+
+  public TodoItemCounters(TodoItemService todoItemService, CurrentUser currentUser, MeterRegistry meterRegistry) {
+    this.todoItemService = todoItemService;
+    this.currentUser = currentUser;
+    this.corrections = Counter.builder("todo.counters.corrections")
+        .description("Reconciliations that found the maintained counts differed from the database")
+        .register(meterRegistry);
+  }
+
+  /**
+   * Counts per status, and of items that are not complete and are overdue or due today
+   */
+  public record Counts(Map<TodoStatus, Long> byStatus, long overdue, long dueToday) {
+
+    public long count(TodoStatus status) {
+      return byStatus.getOrDefault(status, 0L);
+    }
+  }
+
+  /**
+   * Counts for every status and due date bucket, as of one day
+   */
+  private static final class State {
+
+    private LocalDate today;
+    private final long[] total = new long[STATUS_COUNT];
+    private final long[] overdue = new long[STATUS_COUNT];
+    private final long[] dueToday = new long[STATUS_COUNT];
+    private final NavigableMap<LocalDate, long[]> dueLater = new TreeMap<>();
+
+    State(LocalDate today) {
+      this.today = today;
+    }
+
+    void add(TodoStatus status, LocalDate dueDate, long count) {
+      int index = status.ordinal();
+      total[index] += count;
+      if (dueDate == null) {
+        return;
+      }
+      if (dueDate.isBefore(today)) {
+        overdue[index] += count;
+      } else if (dueDate.isEqual(today)) {
+        dueToday[index] += count;
+      } else {
+        long[] counts = dueLater.computeIfAbsent(dueDate, date -> new long[STATUS_COUNT]);
+        counts[index] += count;
+        if (Arrays.stream(counts).allMatch(c -> c == 0)) {
+          dueLater.remove(dueDate);
+        }
+      }
+    }
+
+    /**
+     * Move the due date buckets forward to a later day
+     */
+    void rollTo(LocalDate newToday) {
+      if (!newToday.isAfter(today)) {
+        return;
+      }
+      for (int i = 0; i < STATUS_COUNT; i++) {
+        overdue[i] += dueToday[i];
+        dueToday[i] = 0;
+      }
+      NavigableMap<LocalDate, long[]> nowOverdue = dueLater.headMap(newToday, false);
+      for (long[] counts : nowOverdue.values()) {
+        addTo(overdue, counts);
+      }
+      nowOverdue.clear();
+      long[] nowDueToday = dueLater.remove(newToday);
+      if (nowDueToday != null) {
+        addTo(dueToday, nowDueToday);
+      }
+      today = newToday;
+    }
+
+    Counts toCounts() {
+      Map<TodoStatus, Long> byStatus = new EnumMap<>(TodoStatus.class);
+      long openOverdue = 0;
+      long openDueToday = 0;
+      for (TodoStatus status : TodoStatus.values()) {
+        byStatus.put(status, total[status.ordinal()]);
+        if (status != TodoStatus.COMPLETE) {
+          openOverdue += overdue[status.ordinal()];
+          openDueToday += dueToday[status.ordinal()];
+        }
+      }
+      return new Counts(byStatus, openOverdue, openDueToday);
+    }
+
+    boolean isEmpty() {
+      return Arrays.stream(total).allMatch(count -> count == 0);
+    }
+
+    boolean sameAs(State other) {
+      if (other == null) {
+        return isEmpty();
+      }
+      return today.equals(other.today)
+          && Arrays.equals(total, other.total)
+          && Arrays.equals(overdue, other.overdue)
+          && Arrays.equals(dueToday, other.dueToday)
+          && dueLater.keySet().equals(other.dueLater.keySet())
+          && dueLater.entrySet().stream()
+              .allMatch(entry -> Arrays.equals(entry.getValue(), other.dueLater.get(entry.getKey())));
+    }
+
+    private static void addTo(long[] target, long[] counts) {
+      for (int i = 0; i < STATUS_COUNT; i++) {
+        target[i] += counts[i];
+      }
+    }
+  }
+
+  /**
+   * Current counts of the current user, loading the counts from the database on first use. The load is repeated if
+   * items changed around it, as changes are not applied until the counts are loaded.
+   */
+  public Counts getCounts() {
+    for (int attempt = 1; !loaded(); attempt++) {
+      long changes = quietChanges();
+      Map<String, State> loaded = load();
+      synchronized (this) {
+        if (states == null && unchangedSince(changes)) {
+          states = loaded;
+        } else if (states == null && attempt == MAX_LOAD_ATTEMPTS) {
+          logger.warn("TodoItems kept changing while their counts loaded, leaving reconciliation to correct them");
+          states = loaded;
+        }
+      }
+    }
+    synchronized (this) {
+      State state = states.get(currentUser.getId());
+      if (state == null) {
+        return new State(LocalDate.now()).toCounts();
+      }
+      state.rollTo(LocalDate.now());
+      return state.toCounts();
+    }
+  }
+
+  private synchronized boolean loaded() {
+    return states != null;
+  }
+
+  /**
+   * Load the counts once the application has started, rather than on the first page view
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  public void onApplicationReady() {
+    try {
+      getCounts();
+    } catch (Exception e) {
+      logger.error("Failed to load TodoItem counts", e);
+    }
+  }
+
+  /**
+   * Apply committed changes to the counts, before views are told about them
+   */
+  @Order(Ordered.HIGHEST_PRECEDENCE + 1)
+  @TransactionalEventListener(fallbackExecution = true)
+  public synchronized void onTodoItemChanged(TodoItemChangedEvent event) {
+    if (states == null) {
+      // Not loaded yet. A load is only kept if no change was in flight around it, so it includes these, unless
+      // items kept changing through every attempt and reconciliation corrects them.
+      return;
+    }
+    LocalDate today = LocalDate.now();
+    State state = states.computeIfAbsent(event.ownerId(), ownerId -> new State(today));
+    state.rollTo(today);
+    for (Change change : event.changes()) {
+      if (change.previousStatus() != null) {
+        state.add(change.previousStatus(), change.previousDueDate(), -1);
+      }
+      if (change.status() != null) {
+        state.add(change.status(), change.dueDate(), 1);
+      }
+    }
+  }
+
+  /**
+   * Count a change as in flight from before its transaction commits, so a load can tell whether it saw the change.
+   * Without a transaction every phase runs at once, so this is ordered first and completion last.
+   */
+  @Order(Ordered.HIGHEST_PRECEDENCE)
+  @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+  public synchronized void onTodoItemCommitting(TodoItemChangedEvent event) {
+    changesCommitting++;
+    inFlight.add(event);
+  }
+
+  /**
+   * A change is no longer in flight once its transaction has completed, and so has been applied if committed
+   */
+  @Order(Ordered.LOWEST_PRECEDENCE)
+  @TransactionalEventListener(phase = TransactionPhase.AFTER_COMPLETION, fallbackExecution = true)
+  public synchronized void onTodoItemCompleted(TodoItemChangedEvent event) {
+    inFlight.remove(event);
+  }
+
+  /**
+   * Move items due today into overdue, and items due on the new day into due today
+   */
+  @Scheduled(cron = "0 0 0 * * *")
+  public synchronized void rollDate() {
+    if (states != null) {
+      LocalDate today = LocalDate.now();
+      states.values().forEach(state -> state.rollTo(today));
+      logger.debug("Rolled TodoItem due date counts of {} users to {}", states.size(), today);
+    }
+  }
+
+  /**
+   * Compare the counts with a GROUP BY query and replace them if they differ, returning whether they did. If a
+   * change was in flight when the query started or has begun to commit since, the query may disagree with the counts
+   * without either being wrong, so they are left for the next run.
+   */
+  @Scheduled(fixedDelayString = "${todo.counters.reconcile-interval:10m}",
+      initialDelayString = "${todo.counters.reconcile-interval:10m}")
+  public boolean reconcile() {
+    try {
+      long changes = quietChanges();
+      Map<String, State> loaded = load();
+      synchronized (this) {
+        if (!unchangedSince(changes)) {
+          logger.debug("TodoItems changed while their counts were reconciled, leaving them to the next run");
+          return false;
+        }
+        if (states == null) {
+          states = loaded;
+          return false;
+        }
+        Set<String> ownerIds = new HashSet<>(states.keySet());
+        ownerIds.addAll(loaded.keySet());
+        List<String> differing = new ArrayList<>();
+        for (String ownerId : ownerIds) {
+          State state = states.get(ownerId);
+          State loadedState = loaded.get(ownerId);
+          if (state == null) {
+            if (!loadedState.isEmpty()) {
+              differing.add(ownerId);
+            }
+          } else {
+            state.rollTo(loadedState == null ? LocalDate.now() : loadedState.today);
+            if (!state.sameAs(loadedState)) {
+              differing.add(ownerId);
+            }
+          }
+        }
+        if (differing.isEmpty()) {
+          logger.debug("TodoItem counts of {} users match the database", loaded.size());
+          return false;
+        }
+        logger.warn("TodoItem counts of users {} differed from the database, replacing them", differing);
+        corrections.increment();
+        states = loaded;
+        return true;
+      }
+    } catch (Exception e) {
+      logger.error("Failed to reconcile TodoItem counts", e);
+      return false;
+    }
+  }
+
+  /**
+   * The number of changes that have begun to commit, or -1 if any are still in flight
+   */
+  private synchronized long quietChanges() {
+    return inFlight.isEmpty() ? changesCommitting : -1;
+  }
+
+  /**
+   * Whether nothing was in flight when {@link #quietChanges} returned the given number, and no change has begun to
+   * commit since, so a load in between saw exactly the changes applied to the counts
+   */
+  private synchronized boolean unchangedSince(long changes) {
+    return changes >= 0 && changes == changesCommitting;
+  }
+
+  private Map<String, State> load() {
+    LocalDate today = LocalDate.now();
+    Map<String, State> loaded = new HashMap<>();
+    // From the primary, so a lagging read replica can't replace correct counts with old ones
+    for (TodoItemStore.StatusAndDueDateCount row
+        : todoItemService.readFromPrimary(todoItemService::countByOwnerStatusAndDueDate)) {
+      loaded.computeIfAbsent(row.getOwnerId(), ownerId -> new State(today))
+          .add(row.getStatus(), row.getDueDate(), row.getCount());
+    }
+    return loaded;
+  }
+}
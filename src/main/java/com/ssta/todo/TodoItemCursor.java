@@ -0,0 +1,50 @@
+package com.ssta.todo;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position in the keyset ordering of TodoItems by due date, then priority, then ID, with nulls last.
+ * Encoded as an opaque string for API clients.
+ */
+public record TodoItemCursor(LocalDate dueDate, Integer priority, Long id) {
+
+  public TodoItemCursor {
+    if (id == null) {
+      throw new IllegalArgumentException("Cursor ID cannot be null");
+    }
+  }
+
+  /**
+   * The cursor pointing just after the given item
+   */
+  public static TodoItemCursor after(TodoItem item) {
+    return new TodoItemCursor(item.getDueDate(), item.getPriority(), item.getId());
+  }
+
+  public String encode() {
+    String value = (dueDate == null ? "" : dueDate.toString())
+        + "|" + (priority == null ? "" : priority.toString())
+        + "|" + id;
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+  }
+
+  public static TodoItemCursor decode(String cursor) {
+    try {
+      String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+      String[] parts = value.split("\\|", -1);
+      if (parts.length != 3) {
+        throw new IllegalArgumentException("Invalid cursor");
+      }
+      return new TodoItemCursor(
+          parts[0].isEmpty() ? null : LocalDate.parse(parts[0]),
+          parts[1].isEmpty() ? null : Integer.valueOf(parts[1]),
+          Long.valueOf(parts[2]));
+    } catch (DateTimeParseException | IllegalArgumentException e) {
+      // NumberFormatException and Base64 errors are both IllegalArgumentExceptions
+      throw new IllegalArgumentException("Invalid cursor", e);
+    }
+  }
+}
@@ -0,0 +1,31 @@
+package com.ssta.todo;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * JSON representation of a TodoItem in the REST API. The ID and dates are set by the server and ignored on input;
+ * the version, if sent, makes an update fail when the item was changed in the meantime.
+ */
+public record TodoItemDto(Long id, String description, String detailedNotes, TodoStatus status, Integer priority,
+                          LocalDate dueDate, LocalDateTime createdDate, LocalDateTime updatedDate, Long version) {
+
+  public static TodoItemDto from(TodoItem item) {
+    return new TodoItemDto(item.getId(), item.getDescription(), item.getDetailedNotes(), item.getStatus(),
+        item.getPriority(), item.getDueDate(), item.getCreatedDate(), item.getUpdatedDate(), item.getVersion());
+  }
+
+  /**
+   * Copy the client-editable fields onto an item
+   */
+  public void applyTo(TodoItem item) {
+    item.setDescription(description);
+    item.setDetailedNotes(detailedNotes);
+    item.setStatus(status);
+    item.setPriority(priority);
+    item.setDueDate(dueDate);
+    if (version != null) {
+      item.setVersion(version);
+    }
+  }
+}
@@ -0,0 +1,587 @@
+package com.ssta.todo;
+
+import com.ssta.todo.TodoItemChangedEvent.Change;
+import com.ssta.todo.TodoItemChangedEvent.ChangeType;
+import com.ssta.todo.TodoItemChangedEvent.Content;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only log of every committed TodoItem change, so consumers can follow changes, and the table can be
+ * rebuilt, without querying the database.
+ * <p>
+ * Each change of a {@link TodoItemChangedEvent} becomes a record with a sequence number. Records are written to
+ * memory-mapped segment files of todo.event-log.segment-size in todo.event-log.directory, each named after the first
+ * sequence number it holds. Numbers are taken as a transaction commits, after it holds all its row locks, and
+ * records are written in number order once it has committed, so changes to an item are logged in the order they
+ * were made. A rolled back transaction leaves a gap in the numbers, which is only ever passed by a later record, so a
+ * number handed out as a position is never reused after a restart. Records are checksummed, and a record torn by a
+ * crash is dropped at startup along with anything after it. Records reach the operating system as they are written
+ * and the disk when a segment fills and at shutdown. With todo.event-log.max-segments set, the oldest segments beyond
+ * that many are deleted as new ones start; otherwise the log is kept whole, as replay needs it.
+ * <p>
+ * A committed change that fails to be written is lost from the log. Its number is recorded as the lowest that
+ * readers may start after, as for deleted segments, and new changes are refused, failing their transactions, until a
+ * new segment can be started.
+ * <p>
+ * Readers follow the log with a {@link Tailer}, which reads the mapped segments directly without blocking writers,
+ * and can wait for new records with {@link #whenLoggedAfter} without holding a thread.
+ */
+@Component
+public class TodoItemEventLog {
+
+  private static final Logger logger = LoggerFactory.getLogger(TodoItemEventLog.class);
+  private static final String SEGMENT_PREFIX = "events-";
+  private static final String SEGMENT_SUFFIX = ".log";
+  // Holds the highest sequence number of a change that failed to be written
+  private static final String LOST_FILE = "lost-sequence";
+  // Each record is its payload length and the CRC32 of its payload, then the payload
+  private static final int HEADER_SIZE = 8;
+  private static final int MIN_SEGMENT_SIZE = 1024 * 1024;
+  private static final long NO_DUE_DATE = Long.MIN_VALUE;
+  // Change types and statuses are stored by ordinal, so new values must only be added last
+  private static final ChangeType[] CHANGE_TYPES = ChangeType.values();
+  private static final TodoStatus[] STATUSES = TodoStatus.values();
+
+  private final Path directory;
+  private final int segmentSize;
+  private final int maxSegments;
+  private final EntityManager entityManager;
+
+  // Only changed under writeLock; readers need no lock
+  private final List<Segment> segments = new CopyOnWriteArrayList<>();
+  private final Object writeLock = new Object();
+  // All guarded by writeLock
+  private final Map<Long, Batch> completed = new HashMap<>();
+  private final List<Waiter> waiters = new ArrayList<>();
+  private final CRC32 crc = new CRC32();
+  private ByteBuffer scratch = ByteBuffer.allocate(4096);
+  // Set when a record failed to be written, until new records can be written again
+  private Exception writeFailure;
+  private long nextReserved;
+  private long nextToWrite;
+  // The sequence number of the last record written, never of a number left unused
+  private volatile long lastSequence;
+  // Records up to this sequence number may have been deleted with their segments or failed to be written
+  private volatile long retainedAfter;
+
+  public TodoItemEventLog(@Value("${todo.event-log.directory:./data/events}") Path directory,
+                          @Value("${todo.event-log.segment-size:64MB}") DataSize segmentSize,
+                          @Value("${todo.event-log.max-segments:0}") int maxSegments,
+                          EntityManager entityManager) {
+    if (segmentSize.toBytes() < MIN_SEGMENT_SIZE || segmentSize.toBytes() > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Event log segment size must be between 1MB and 2GB");
+    }
+    if (maxSegments < 0) {
+      throw new IllegalArgumentException("Event log max segments must not be negative");
+    }
+    this.directory = directory;
+    this.segmentSize = (int) segmentSize.toBytes();
+    this.maxSegments = maxSegments;
+    this.entityManager = entityManager;
+    recover();
+  }
+
+  /**
+   * A logged change. Content fields are only set for created and updated items, and status, due date and version
+   * are not set for deleted ones.
+   */
+  public record Entry(long sequence, Instant timestamp, ChangeType type, String ownerId, long id, TodoStatus status,
+                      LocalDate dueDate, Long version, String description, String detailedNotes, Integer priority) {
+  }
+
+  /**
+   * The changes of one transaction, with the first of the sequence numbers reserved for them. Changes are null if
+   * the transaction rolled back.
+   */
+  private record Batch(long firstSequence, int count, String ownerId, List<Change> changes) {
+  }
+
+  private record Waiter(long afterSequence, CompletableFuture<Void> logged) {
+  }
+
+  /**
+   * A segment file, mapped whole. Records before limit are complete; once a later segment exists it is final. The
+   * mapping outlives the file if it is deleted, until no reader holds the segment.
+   */
+  private static final class Segment {
+
+    private final long firstSequence;
+    private final Path path;
+    private final MappedByteBuffer buffer;
+    private volatile int limit;
+
+    Segment(long firstSequence, Path path, MappedByteBuffer buffer) {
+      this.firstSequence = firstSequence;
+      this.path = path;
+      this.buffer = buffer;
+    }
+  }
+
+  /**
+   * A reader's position in the log. Each reader needs its own, as a Tailer is not thread-safe.
+   */
+  public final class Tailer {
+
+    private final long afterSequence;
+    // Null until the log has a segment
+    private Segment segment;
+    private int position;
+    private long lastRead;
+
+    private Tailer(long afterSequence, Segment segment) {
+      this.afterSequence = afterSequence;
+      this.segment = segment;
+      this.lastRead = afterSequence;
+    }
+
+    /**
+     * Pass up to max entries written since the last poll to the handler, oldest first, stopping early without
+     * taking the entry if the handler returns false. Returns the number of entries taken.
+     */
+    public int poll(Predicate<Entry> handler, int max) {
+      int taken = 0;
+      if (segment == null) {
+        segment = segments.isEmpty() ? null : segments.get(0);
+        if (segment == null) {
+          return 0;
+        }
+      }
+      while (taken < max) {
+        Segment next;
+        if (position < segment.limit) {
+          Entry entry = decode(segment.buffer, position);
+          if (entry.sequence() > afterSequence) {
+            if (!handler.test(entry)) {
+              break;
+            }
+            taken++;
+          }
+          position += HEADER_SIZE + segment.buffer.getInt(position);
+          lastRead = Math.max(lastRead, entry.sequence());
+        } else if ((next = segmentAfter(segment)) != null && position >= segment.limit) {
+          // A later segment exists, so this one's limit read above was final
+          segment = next;
+          position = 0;
+        } else {
+          break;
+        }
+      }
+      return taken;
+    }
+
+    /**
+     * The sequence number of the last entry read, to start a later Tailer after
+     */
+    public long lastSequence() {
+      return lastRead;
+    }
+  }
+
+  /**
+   * Read the entries after the given sequence number, or from the start with 0
+   */
+  public Tailer tail(long afterSequence) {
+    Segment start = null;
+    for (Segment segment : segments) {
+      if (start == null || segment.firstSequence <= afterSequence + 1) {
+        start = segment;
+      }
+    }
+    return new Tailer(afterSequence, start);
+  }
+
+  /**
+   * The sequence number of the last change logged, or 0 if there are none. Numbers left unused by rolled back
+   * transactions after it are not counted, as the next start will hand them out again.
+   */
+  public long lastSequence() {
+    return lastSequence;
+  }
+
+  /**
+   * The sequence number up to which records may have been deleted by todo.event-log.max-segments or failed to be
+   * written, or 0 if none have. A reader starting before it may miss changes.
+   */
+  public long retainedAfter() {
+    return retainedAfter;
+  }
+
+  /**
+   * A future completed once a change after the given sequence number is logged, by the thread that logs it, so
+   * dependent work should run on its own executor. Cancel it to stop waiting.
+   */
+  public CompletableFuture<Void> whenLoggedAfter(long sequence) {
+    CompletableFuture<Void> logged = new CompletableFuture<>();
+    synchronized (writeLock) {
+      if (lastSequence > sequence) {
+        logged.complete(null);
+      } else {
+        waiters.removeIf(waiter -> waiter.logged().isDone());
+        waiters.add(new Waiter(sequence, logged));
+      }
+    }
+    return logged;
+  }
+
+  /**
+   * Log the changes once their transaction commits
+   */
+  @EventListener
+  public void onTodoItemChanged(TodoItemChangedEvent event) {
+    int count = event.changes().size();
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      complete(new Batch(reserve(count), count, event.ownerId(), event.changes()));
+      return;
+    }
+
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      private long firstSequence = -1;
+
+      @Override
+      public void beforeCommit(boolean readOnly) {
+        // Write any pending changes first, so the transaction holds its row locks before it is numbered and
+        // conflicting transactions are numbered in the order they commit
+        entityManager.flush();
+        firstSequence = reserve(count);
+      }
+
+      @Override
+      public void afterCompletion(int status) {
+        if (firstSequence >= 0) {
+          complete(new Batch(firstSequence, count, event.ownerId(),
+              status == STATUS_COMMITTED ? event.changes() : null));
+        }
+      }
+    });
+  }
+
+  @PreDestroy
+  public void close() {
+    synchronized (writeLock) {
+      if (!segments.isEmpty()) {
+        segments.get(segments.size() - 1).buffer.force();
+      }
+    }
+  }
+
+  private long reserve(int count) {
+    synchronized (writeLock) {
+      if (writeFailure != null) {
+        resumeWriting();
+      }
+      long first = nextReserved;
+      nextReserved += count;
+      return first;
+    }
+  }
+
+  /**
+   * Write a batch, and any batches waiting for it, once every batch numbered before it has been written
+   */
+  private void complete(Batch batch) {
+    List<CompletableFuture<Void>> ready = new ArrayList<>();
+    synchronized (writeLock) {
+      completed.put(batch.firstSequence(), batch);
+      Batch next;
+      while ((next = completed.remove(nextToWrite)) != null) {
+        if (next.changes() != null) {
+          long timestamp = System.currentTimeMillis();
+          for (int i = 0; i < next.count(); i++) {
+            Change change = next.changes().get(i);
+            try {
+              append(next.firstSequence() + i, timestamp, next.ownerId(), change);
+              lastSequence = next.firstSequence() + i;
+              writeFailure = null;
+            } catch (IOException | RuntimeException e) {
+              logger.error("Failed to log {} of TodoItem {}, refusing changes until the log can be written",
+                  change.type(), change.id(), e);
+              recordLost(next.firstSequence() + i, e);
+            }
+          }
+        }
+        nextToWrite += next.count();
+      }
+      waiters.removeIf(waiter -> waiter.logged().isDone()
+          || (waiter.afterSequence() < lastSequence && ready.add(waiter.logged())));
+    }
+    // Outside the lock, as completing runs whatever was waiting
+    ready.forEach(logged -> logged.complete(null));
+  }
+
+  private void append(long sequence, long timestamp, String ownerId, Change change) throws IOException {
+    Content content = change.content();
+    scratch.clear();
+    putPayload(sequence, timestamp, change.type(), ownerId, change.id(), change.status(), change.dueDate(),
+        change.version(), content == null ? null : content.description(),
+        content == null ? null : content.detailedNotes(),
+        content == null ? null : content.priority());
+    int payloadLength = scratch.position();
+    int recordLength = HEADER_SIZE + payloadLength;
+
+    Segment segment = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+    if (segment == null || segment.limit + recordLength > segment.buffer.capacity()) {
+      segment = roll(segment, sequence);
+    }
+
+    int position = segment.limit;
+    crc.reset();
+    crc.update(scratch.array(), 0, payloadLength);
+    segment.buffer.put(position + HEADER_SIZE, scratch.array(), 0, payloadLength);
+    segment.buffer.putInt(position + 4, (int) crc.getValue());
+    // The length goes last, so a record is never seen with a length before the rest of it is written
+    segment.buffer.putInt(position, payloadLength);
+    segment.limit = position + recordLength;
+  }
+
+  private void putPayload(long sequence, long timestamp, ChangeType type, String ownerId, long id, TodoStatus status,
+                          LocalDate dueDate, Long version, String description, String detailedNotes,
+                          Integer priority) {
+    byte[] owner = ownerId.getBytes(StandardCharsets.UTF_8);
+    byte[] descriptionBytes = description == null ? null : description.getBytes(StandardCharsets.UTF_8);
+    byte[] notesBytes = detailedNotes == null ? null : detailedNotes.getBytes(StandardCharsets.UTF_8);
+    int size = 8 + 8 + 1 + 8 + 1 + 8 + 1 + 8 + 12 + owner.length
+        + (descriptionBytes == null ? 0 : descriptionBytes.length) + (notesBytes == null ? 0 : notesBytes.length);
+    if (scratch.capacity() < size) {
+      scratch = ByteBuffer.allocate(Math.max(size, scratch.capacity() * 2));
+    }
+
+    scratch.putLong(sequence)
+        .putLong(timestamp)
+        .put((byte) type.ordinal())
+        .putLong(id)
+        .put(status == null ? -1 : (byte) status.ordinal())
+        .putLong(dueDate == null ? NO_DUE_DATE : dueDate.toEpochDay())
+        .put(priority == null ? 0 : priority.byteValue())
+        .putLong(version == null ? -1 : version);
+    putBytes(owner);
+    putBytes(descriptionBytes);
+    putBytes(notesBytes);
+  }
+
+  private void putBytes(byte[] bytes) {
+    if (bytes == null) {
+      scratch.putInt(-1);
+    } else {
+      scratch.putInt(bytes.length).put(bytes);
+    }
+  }
+
+  private static Entry decode(ByteBuffer buffer, int position) {
+    int offset = position + HEADER_SIZE;
+    long sequence = buffer.getLong(offset);
+    long timestamp = buffer.getLong(offset + 8);
+    ChangeType type = CHANGE_TYPES[buffer.get(offset + 16)];
+    long id = buffer.getLong(offset + 17);
+    byte status = buffer.get(offset + 25);
+    long dueDate = buffer.getLong(offset + 26);
+    byte priority = buffer.get(offset + 34);
+    long version = buffer.getLong(offset + 35);
+    offset += 43;
+
+    String[] strings = new String[3];
+    for (int i = 0; i < strings.length; i++) {
+      int length = buffer.getInt(offset);
+      offset += 4;
+      if (length >= 0) {
+        byte[] bytes = new byte[length];
+        buffer.get(offset, bytes);
+        strings[i] = new String(bytes, StandardCharsets.UTF_8);
+        offset += length;
+      }
+    }
+
+    return new Entry(sequence, Instant.ofEpochMilli(timestamp), type, strings[0], id,
+        status < 0 ? null : STATUSES[status],
+        dueDate == NO_DUE_DATE ? null : LocalDate.ofEpochDay(dueDate), version < 0 ? null : version,
+        strings[1], strings[2], priority == 0 ? null : (int) priority);
+  }
+
+  /**
+   * Record that the change with the given number was committed but not logged, so readers from before it are told
+   * they may have missed changes, even after a restart, and refuse new changes until records can be written again
+   */
+  private void recordLost(long sequence, Exception failure) {
+    writeFailure = failure;
+    retainedAfter = Math.max(retainedAfter, sequence);
+    try {
+      Files.writeString(directory.resolve(LOST_FILE), Long.toString(retainedAfter));
+    } catch (IOException e) {
+      logger.warn("Failed to record that event log sequence {} was lost", sequence, e);
+    }
+  }
+
+  /**
+   * Start a new segment after a failed write so changes can be logged again, or refuse the change if that fails
+   */
+  private void resumeWriting() {
+    Segment last = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+    try {
+      // Every record written is numbered before nextToWrite, so a new segment can start there
+      if (last == null || last.limit > 0) {
+        roll(last, nextToWrite);
+      }
+      writeFailure = null;
+      logger.info("The event log can be written again from sequence {}", nextToWrite);
+    } catch (IOException | RuntimeException e) {
+      IllegalStateException refused = new IllegalStateException(
+          "The TodoItem event log can't be written, so changes are refused", e);
+      refused.addSuppressed(writeFailure);
+      throw refused;
+    }
+  }
+
+  /**
+   * Start a new segment for records from firstSequence on, making sure the full one is on disk first
+   */
+  private Segment roll(Segment full, long firstSequence) throws IOException {
+    if (full != null) {
+      full.buffer.force();
+    }
+    Path path = directory.resolve(SEGMENT_PREFIX + String.format("%020d", firstSequence) + SEGMENT_SUFFIX);
+    Segment segment;
+    try {
+      segment = new Segment(firstSequence, path, map(path, segmentSize, StandardOpenOption.CREATE_NEW));
+    } catch (FileAlreadyExistsException e) {
+      throw e;
+    } catch (IOException e) {
+      // Remove the file if it was created, so a later attempt can create it again
+      Files.deleteIfExists(path);
+      throw e;
+    }
+    segments.add(segment);
+    logger.info("Started event log segment {}", path);
+    deleteOldSegments();
+    return segment;
+  }
+
+  /**
+   * Delete the oldest segments beyond todo.event-log.max-segments, if it is set
+   */
+  private void deleteOldSegments() {
+    while (maxSegments > 0 && segments.size() > maxSegments) {
+      Segment oldest = segments.remove(0);
+      retainedAfter = Math.max(retainedAfter, segments.get(0).firstSequence - 1);
+      try {
+        Files.deleteIfExists(oldest.path);
+        logger.info("Deleted event log segment {}", oldest.path);
+      } catch (IOException e) {
+        logger.warn("Failed to delete event log segment {}", oldest.path, e);
+      }
+    }
+  }
+
+  /**
+   * The segment following the given one, which may itself have been deleted, or null if there is none yet
+   */
+  private Segment segmentAfter(Segment segment) {
+    for (Segment candidate : segments) {
+      if (candidate.firstSequence > segment.firstSequence) {
+        return candidate;
+      }
+    }
+    return null;
+  }
+
+  private static MappedByteBuffer map(Path path, long size, StandardOpenOption... options) throws IOException {
+    List<StandardOpenOption> allOptions = new ArrayList<>(List.of(options));
+    allOptions.add(StandardOpenOption.READ);
+    allOptions.add(StandardOpenOption.WRITE);
+    try (FileChannel channel = FileChannel.open(path, allOptions.toArray(new StandardOpenOption[0]))) {
+      // The mapping stays valid once the channel is closed
+      return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+  }
+
+  /**
+   * Map the existing segments and find the end of the complete records in each
+   */
+  private void recover() {
+    try {
+      Files.createDirectories(directory);
+      List<Path> paths;
+      try (Stream<Path> files = Files.list(directory)) {
+        paths = files
+            .filter(path -> path.getFileName().toString().startsWith(SEGMENT_PREFIX))
+            .filter(path -> path.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+            .sorted()
+            .toList();
+      }
+
+      long last = 0;
+      for (Path path : paths) {
+        String name = path.getFileName().toString();
+        long firstSequence = Long.parseLong(name.substring(SEGMENT_PREFIX.length(),
+            name.length() - SEGMENT_SUFFIX.length()));
+        Segment segment = new Segment(firstSequence, path, map(path, Files.size(path)));
+        int position = 0;
+        int capacity = segment.buffer.capacity();
+        while (position + HEADER_SIZE <= capacity) {
+          int length = segment.buffer.getInt(position);
+          if (length <= 0 || length > capacity - position - HEADER_SIZE) {
+            break;
+          }
+          crc.reset();
+          crc.update(segment.buffer.slice(position + HEADER_SIZE, length));
+          long sequence = segment.buffer.getLong(position + HEADER_SIZE);
+          if ((int) crc.getValue() != segment.buffer.getInt(position + 4) || sequence <= last) {
+            logger.warn("Dropping incomplete event log records from {} at offset {}", path, position);
+            // Clear the torn record and whatever follows, so appending doesn't leave a mix of old and new records
+            for (int i = position; i < capacity; i++) {
+              segment.buffer.put(i, (byte) 0);
+            }
+            break;
+          }
+          last = sequence;
+          position += HEADER_SIZE + length;
+        }
+        segment.limit = position;
+        segments.add(segment);
+      }
+
+      nextReserved = last + 1;
+      nextToWrite = last + 1;
+      lastSequence = last;
+      // Records before the first segment were deleted by retention, unless it starts after numbers left unused
+      retainedAfter = segments.isEmpty() ? 0 : segments.get(0).firstSequence - 1;
+      Path lost = directory.resolve(LOST_FILE);
+      if (Files.exists(lost)) {
+        retainedAfter = Math.max(retainedAfter, Long.parseLong(Files.readString(lost).trim()));
+      }
+      deleteOldSegments();
+      logger.info("Opened event log in {} with {} segments, last sequence {}", directory, segments.size(), last);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to open the event log in " + directory, e);
+    }
+  }
+}
@@ -0,0 +1,126 @@
+package com.ssta.todo;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Rebuilds the todo_items table from the {@link TodoItemEventLog} at startup when todo.event-log.replay is true, for
+ * example onto a restored backup or an empty database.
+ * <p>
+ * Every logged change is applied in order, one chunk per transaction: created and updated items are written with
+ * their logged content and version, inserted if they are missing, status changes are applied to items that exist and
+ * deleted items are removed. Items end with the versions clients were given, and applying the whole log again gives
+ * the same result, so replay can simply be repeated. Items
+ * changed only before the log was started are left as they are. Replayed items are dropped from the search index
+ * so it indexes their new content, and the ID sequence is moved past the highest ID.
+ */
+@Component
+@ConditionalOnProperty(name = "todo.event-log.replay", havingValue = "true")
+public class TodoItemEventReplay implements SmartInitializingSingleton {
+
+  private static final Logger logger = LoggerFactory.getLogger(TodoItemEventReplay.class);
+  private static final int CHUNK_SIZE = 1000;
+
+  private final TodoItemEventLog eventLog;
+  private final JdbcTemplate jdbcTemplate;
+  private final TransactionTemplate transactionTemplate;
+
+  public TodoItemEventReplay(TodoItemEventLog eventLog, JdbcTemplate jdbcTemplate,
+                             PlatformTransactionManager transactionManager) {
+    this.eventLog = eventLog;
+    this.jdbcTemplate = jdbcTemplate;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+  }
+
+  /**
+   * Runs once every bean is created and before the web server starts, so no request sees a partly replayed table
+   * and the search index backfill and the counters see the replayed items
+   */
+  @Override
+  public void afterSingletonsInstantiated() {
+    replay();
+  }
+
+  /**
+   * Apply every logged change to the table, returning the number applied
+   */
+  public long replay() {
+    logger.info("Replaying the TodoItem event log up to sequence {}", eventLog.lastSequence());
+    if (eventLog.retainedAfter() > 0) {
+      logger.warn("TodoItem changes up to sequence {} were deleted with their segments or failed to be logged, and"
+          + " are not all replayed", eventLog.retainedAfter());
+    }
+    TodoItemEventLog.Tailer tailer = eventLog.tail(0);
+    List<TodoItemEventLog.Entry> chunk = new ArrayList<>(CHUNK_SIZE);
+    long replayed = 0;
+    while (tailer.poll(chunk::add, CHUNK_SIZE) > 0) {
+      transactionTemplate.executeWithoutResult(status -> applyChunk(chunk));
+      replayed += chunk.size();
+      chunk.clear();
+    }
+
+    transactionTemplate.executeWithoutResult(status -> restartIdSequence());
+    logger.info("Replayed {} TodoItem changes up to sequence {}", replayed, tailer.lastSequence());
+    return replayed;
+  }
+
+  private void applyChunk(List<TodoItemEventLog.Entry> entries) {
+    Set<Long> ids = new LinkedHashSet<>();
+    for (TodoItemEventLog.Entry entry : entries) {
+      Timestamp timestamp = Timestamp.from(entry.timestamp());
+      switch (entry.type()) {
+        case CREATED, UPDATED -> {
+          Date dueDate = entry.dueDate() == null ? null : Date.valueOf(entry.dueDate());
+          int updated = jdbcTemplate.update("UPDATE todo_items SET owner_id = ?, description = ?, detailed_notes = ?,"
+                  + " status = ?, priority = ?, due_date = ?, updated_date = ?, version = ? WHERE id = ?",
+              entry.ownerId(), entry.description(), entry.detailedNotes(), entry.status().name(), entry.priority(),
+              dueDate, timestamp, entry.version(), entry.id());
+          if (updated == 0) {
+            jdbcTemplate.update("INSERT INTO todo_items (id, owner_id, description, detailed_notes, status, priority,"
+                    + " due_date, created_date, updated_date, version) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                entry.id(), entry.ownerId(), entry.description(), entry.detailedNotes(), entry.status().name(),
+                entry.priority(), dueDate, timestamp, timestamp, entry.version());
+          }
+        }
+        case STATUS_CHANGED -> jdbcTemplate.update(
+            "UPDATE todo_items SET status = ?, updated_date = ?, version = ? WHERE id = ?",
+            entry.status().name(), timestamp, entry.version(), entry.id());
+        case DELETED -> jdbcTemplate.update("DELETE FROM todo_items WHERE id = ?", entry.id());
+      }
+      ids.add(entry.id());
+    }
+
+    // The search index backfill adds the replayed items back with their current words
+    jdbcTemplate.batchUpdate("DELETE FROM todo_item_terms WHERE item_id = ?",
+        ids.stream().map(id -> new Object[]{id}).toList());
+  }
+
+  /**
+   * Move the ID sequence past the highest ID, as replayed items were inserted with their logged IDs
+   */
+  private void restartIdSequence() {
+    String database = jdbcTemplate.execute(
+        (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName());
+    if ("PostgreSQL".equals(database)) {
+      jdbcTemplate.queryForObject(
+          "SELECT setval('todo_items_seq', (SELECT COALESCE(MAX(id), 0) + 1 FROM todo_items), false)", Long.class);
+    } else {
+      jdbcTemplate.execute(
+          "ALTER SEQUENCE todo_items_seq RESTART WITH (SELECT COALESCE(MAX(id), 0) + 1 FROM todo_items)");
+    }
+  }
+}
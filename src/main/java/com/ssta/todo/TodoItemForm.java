@@ -9,10 +9,13 @@ import com.vaadin.flow.component.icon.VaadinIcon;
 import com.vaadin.flow.component.orderedlayout.HorizontalLayout;
 import com.vaadin.flow.component.textfield.TextArea;
 import com.vaadin.flow.component.textfield.TextField;
-import com.vaadin.flow.data.binder.BeanValidationBinder;
 import com.vaadin.flow.data.binder.Binder;
+import com.vaadin.flow.data.binder.ValidationResult;
+import com.vaadin.flow.data.binder.Validator;
 
 import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.IntStream;
 
 public class TodoItemForm extends FormLayout {
 
@@ -25,7 +28,7 @@ public class TodoItemForm extends FormLayout {
   private final Button saveButton = new Button("Save");
   private final Button cancelButton = new Button("Cancel");
 
-  private final Binder<TodoItem> binder = new BeanValidationBinder<>(TodoItem.class);
+  private final Binder<TodoItem> binder = new Binder<>(TodoItem.class);
 
   private TodoItem currentItem;
   private Consumer<TodoItem> saveHandler;
@@ -45,12 +48,12 @@ public class TodoItemForm extends FormLayout {
   private void configureFields() {
     // Description field
     description.setRequired(true);
-    description.setMaxLength(400);
+    description.setMaxLength(TodoItemValidator.MAX_DESCRIPTION_LENGTH);
     description.setWidthFull();
     description.setPlaceholder("Enter task description...");
 
     // Detailed Notes field (initially hidden)
-    detailedNotes.setMaxLength(400);
+    detailedNotes.setMaxLength(TodoItemValidator.MAX_NOTES_LENGTH);
     detailedNotes.setWidthFull();
     detailedNotes.setVisible(false);
     detailedNotes.setPlaceholder("Enter detailed notes (optional)...");
@@ -60,7 +63,9 @@ public class TodoItemForm extends FormLayout {
     toggleDetailsButton.addClickListener(e -> toggleDetailsVisibility());
 
     // Priority ComboBox
-    priority.setItems(1, 2, 3, 4, 5);
+    priority.setItems(IntStream.rangeClosed(TodoItemValidator.MIN_PRIORITY, TodoItemValidator.MAX_PRIORITY)
+        .boxed()
+        .toList());
     priority.setPlaceholder("Select priority (optional)");
     priority.setClearButtonVisible(true);
     priority.setItemLabelGenerator(p -> "Priority " + p);
@@ -82,23 +87,34 @@ public class TodoItemForm extends FormLayout {
   }
 
   private void setupBinder() {
+    // The same rules the service applies on save
     binder.forField(description)
-        .asRequired("Description is required")
-        .withValidator(desc -> desc.length() <= 400, "Description must not exceed 400 characters")
+        .asRequired(TodoItemValidator.DESCRIPTION_REQUIRED)
+        .withValidator(rule(TodoItemValidator::checkDescription))
         .bind(TodoItem::getDescription, TodoItem::setDescription);
 
     binder.forField(detailedNotes)
-        .withValidator(notes -> notes == null || notes.isEmpty() || notes.length() <= 400,
-            "Detailed notes must not exceed 400 characters")
+        .withValidator(rule(TodoItemValidator::checkDetailedNotes))
         .bind(TodoItem::getDetailedNotes, TodoItem::setDetailedNotes);
 
     binder.forField(priority)
+        .withValidator(rule(TodoItemValidator::checkPriority))
         .bind(TodoItem::getPriority, TodoItem::setPriority);
 
     binder.forField(dueDate)
         .bind(TodoItem::getDueDate, TodoItem::setDueDate);
   }
 
+  /**
+   * A field validator from a {@link TodoItemValidator} check
+   */
+  private static <T> Validator<T> rule(Function<T, String> check) {
+    return (value, context) -> {
+      String error = check.apply(value);
+      return error == null ? ValidationResult.ok() : ValidationResult.error(error);
+    };
+  }
+
   private void setupLayout() {
     setResponsiveSteps(
         new ResponsiveStep("0", 1),
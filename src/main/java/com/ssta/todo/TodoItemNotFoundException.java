@@ -0,0 +1,12 @@
+package com.ssta.todo;
+
+/**
+ * Thrown when an operation targets a TodoItem that does not exist. Extends IllegalArgumentException, so existing
+ * callers treat it as a validation error; the REST API reports it as 404.
+ */
+public class TodoItemNotFoundException extends IllegalArgumentException {
+
+  public TodoItemNotFoundException(Long id) {
+    super("TodoItem with ID " + id + " not found");
+  }
+}
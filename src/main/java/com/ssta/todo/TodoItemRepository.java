@@ -1,20 +1,128 @@
 package com.ssta.todo;
 
+import com.ssta.todo.TodoItemStore.StatusAndDueDate;
+import com.ssta.todo.TodoItemStore.StatusAndDueDateCount;
+import org.springframework.data.domain.Limit;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
+/**
+ * Database access for TodoItems, used by {@link JpaTodoItemStore}
+ */
 @Repository
-public interface TodoItemRepository extends JpaRepository<TodoItem, Long> {
+public interface TodoItemRepository extends JpaRepository<TodoItem, Long>, TodoItemRepositoryCustom {
 
   /**
-   * Find all TodoItems by their status
+   * Find a user's TodoItem by ID
    */
-  List<TodoItem> findByStatus(TodoStatus status);
+  Optional<TodoItem> findByIdAndOwnerId(Long id, String ownerId);
 
   /**
-   * Find all TodoItems by multiple statuses
+   * Find the grid row of a user's TodoItem by ID, without loading the entity
    */
-  List<TodoItem> findByStatusIn(List<TodoStatus> statuses);
+  @Query("select new com.ssta.todo.TodoItemRow(t.id, t.status, t.description, t.priority, t.dueDate)"
+      + " from TodoItem t where t.id = :id and t.ownerId = :ownerId")
+  Optional<TodoItemRow> findRowByIdAndOwnerId(@Param("id") Long id, @Param("ownerId") String ownerId);
+
+  /**
+   * Find a user's TodoItems by ID, ignoring IDs of other users' items
+   */
+  List<TodoItem> findByOwnerIdAndIdIn(String ownerId, Collection<Long> ids);
+
+  /**
+   * Find all of a user's TodoItems
+   */
+  List<TodoItem> findByOwnerId(String ownerId);
+
+  /**
+   * Find a user's TodoItems by multiple statuses
+   */
+  List<TodoItem> findByOwnerIdAndStatusIn(String ownerId, List<TodoStatus> statuses);
+
+  /**
+   * Count a user's TodoItems by multiple statuses
+   */
+  long countByOwnerIdAndStatusIn(String ownerId, Collection<TodoStatus> statuses);
+
+  /**
+   * Count TodoItems by owner, status and due date in a single scan of the owner, status and due date index
+   */
+  @Query("select t.ownerId as ownerId, t.status as status, t.dueDate as dueDate, count(t) as count from TodoItem t"
+      + " group by t.ownerId, t.status, t.dueDate")
+  List<StatusAndDueDateCount> countByOwnerStatusAndDueDate();
+
+  /**
+   * Find a user's TodoItems changed at or after the given time, oldest change first
+   */
+  List<TodoItem> findByOwnerIdAndUpdatedDateGreaterThanEqualOrderByUpdatedDateAsc(String ownerId, LocalDateTime since,
+                                                                                 Limit limit);
+
+  /**
+   * Delete a user's TodoItems by ID in a single statement, returning the number deleted
+   */
+  @Modifying
+  @Query("delete from TodoItem t where t.ownerId = :ownerId and t.id in :ids")
+  int deleteByOwnerIdAndIdIn(@Param("ownerId") String ownerId, @Param("ids") Collection<Long> ids);
+
+  /**
+   * Set the status of a user's TodoItems by ID in a single statement, returning the number updated
+   */
+  @Modifying
+  @Query("update TodoItem t set t.status = :status, t.updatedDate = :updatedDate, t.version = t.version + 1"
+      + " where t.ownerId = :ownerId and t.id in :ids")
+  int updateStatusByOwnerIdAndIdIn(@Param("ownerId") String ownerId, @Param("ids") Collection<Long> ids,
+                                   @Param("status") TodoStatus status,
+                                   @Param("updatedDate") LocalDateTime updatedDate);
+
+  /**
+   * Advance the status of a user's TodoItem to the next one in the cycle in a single statement, returning the number
+   * updated. The row lock taken by the update makes concurrent cycles queue rather than overwrite each other.
+   * Mirrors {@link TodoStatus#next()}.
+   */
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query("update TodoItem t set t.status = case t.status"
+      + " when com.ssta.todo.TodoStatus.TODO then com.ssta.todo.TodoStatus.IN_PROGRESS"
+      + " when com.ssta.todo.TodoStatus.IN_PROGRESS then com.ssta.todo.TodoStatus.COMPLETE"
+      + " else com.ssta.todo.TodoStatus.TODO end,"
+      + " t.updatedDate = :updatedDate, t.version = t.version + 1"
+      + " where t.id = :id and t.ownerId = :ownerId")
+  int cycleStatusByIdAndOwnerId(@Param("id") Long id, @Param("ownerId") String ownerId,
+                                @Param("updatedDate") LocalDateTime updatedDate);
+
+  /**
+   * Find the status and due date of a user's TodoItem without loading the entity
+   */
+  @Query("select t.id as id, t.status as status, t.dueDate as dueDate, t.version as version"
+      + " from TodoItem t where t.id = :id and t.ownerId = :ownerId")
+  Optional<StatusAndDueDate> findStatusAndDueDateByIdAndOwnerId(@Param("id") Long id,
+                                                                @Param("ownerId") String ownerId);
+
+  /**
+   * Find and lock the status and due date of a user's TodoItem, so a following update or delete sees the same row
+   */
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @Query("select t.id as id, t.status as status, t.dueDate as dueDate, t.version as version"
+      + " from TodoItem t where t.id = :id and t.ownerId = :ownerId")
+  Optional<StatusAndDueDate> findStatusAndDueDateByIdAndOwnerIdForUpdate(@Param("id") Long id,
+                                                                         @Param("ownerId") String ownerId);
+
+  /**
+   * Find and lock the statuses and due dates of a user's TodoItems, so a following bulk update or delete sees the
+   * same rows
+   */
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @Query("select t.id as id, t.status as status, t.dueDate as dueDate, t.version as version"
+      + " from TodoItem t where t.ownerId = :ownerId and t.id in :ids")
+  List<StatusAndDueDate> findStatusesAndDueDatesByOwnerIdAndIdInForUpdate(@Param("ownerId") String ownerId,
+                                                                          @Param("ids") Collection<Long> ids);
 }
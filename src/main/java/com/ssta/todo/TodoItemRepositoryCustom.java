@@ -0,0 +1,74 @@
+package com.ssta.todo;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Queries that cannot be expressed as derived Spring Data queries. Queries only see the TodoItems of one owner.
+ */
+public interface TodoItemRepositoryCustom {
+
+  /**
+   * Find one page of TodoItems by multiple statuses, ordered in the database
+   */
+  List<TodoItem> findPage(String ownerId, Collection<TodoStatus> statuses, List<TodoSortOrder> sortOrders,
+                          int offset, int limit);
+
+  /**
+   * Find one page of grid rows by multiple statuses, ordered in the database like {@link #findPage}
+   */
+  List<TodoItemRow> findRowPage(String ownerId, Collection<TodoStatus> statuses, List<TodoSortOrder> sortOrders,
+                                int offset, int limit);
+
+  /**
+   * Find up to limit TodoItems of any status, or all of them if limit is negative, ordered in the database
+   */
+  List<TodoItem> findAllSorted(String ownerId, List<TodoSortOrder> sortOrders, int limit);
+
+  /**
+   * Find up to limit TodoItems by multiple statuses that come after the cursor, ordered by due date, priority and ID
+   * with nulls last. A null cursor starts from the beginning.
+   */
+  List<TodoItem> findPageAfter(String ownerId, Collection<TodoStatus> statuses, TodoItemCursor after, int limit);
+
+  /**
+   * Stream TodoItems by multiple statuses in ID order, fetching rows as the stream is consumed. Items are detached
+   * once read, so the persistence context doesn't grow. Must be consumed and closed within a transaction.
+   */
+  Stream<TodoItem> streamByStatusIn(String ownerId, Collection<TodoStatus> statuses);
+
+  /**
+   * Find one page of TodoItems by multiple statuses that match a search, best matches first.
+   * Items rank higher the more often the search terms appear, and appearances in the description count double.
+   */
+  List<TodoItem> searchPage(String ownerId, Collection<TodoStatus> statuses, TodoItemSearchQuery query,
+                            int offset, int limit);
+
+  /**
+   * Find one page of grid rows by multiple statuses that match a search, ranked like {@link #searchPage}
+   */
+  List<TodoItemRow> searchRowPage(String ownerId, Collection<TodoStatus> statuses, TodoItemSearchQuery query,
+                                  int offset, int limit);
+
+  /**
+   * Count TodoItems by multiple statuses that match a search
+   */
+  long countSearch(String ownerId, Collection<TodoStatus> statuses, TodoItemSearchQuery query);
+
+  /**
+   * Replace the search terms of one owner's TodoItems, keyed by item ID, with JDBC-batched statements
+   */
+  void replaceSearchTerms(String ownerId, Map<Long, Map<String, Integer>> termWeightsByItemId);
+
+  /**
+   * Remove TodoItems of any owner from the search index, returning the number of terms removed
+   */
+  int deleteSearchTerms(Collection<Long> itemIds);
+
+  /**
+   * Find up to limit IDs of TodoItems of any owner after afterId that have no search terms, in ID order
+   */
+  List<Long> findIdsMissingSearchTerms(long afterId, int limit);
+}
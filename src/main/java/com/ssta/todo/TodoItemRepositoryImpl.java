@@ -0,0 +1,310 @@
+package com.ssta.todo;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Order;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.hibernate.Session;
+import org.hibernate.jpa.AvailableHints;
+import org.hibernate.query.NativeQuery;
+import org.hibernate.query.criteria.HibernateCriteriaBuilder;
+import org.springframework.data.domain.Sort;
+
+import java.sql.PreparedStatement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.stream.Stream;
+
+class TodoItemRepositoryImpl implements TodoItemRepositoryCustom {
+
+  private static final int STREAM_FETCH_SIZE = 500;
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  @Override
+  public List<TodoItem> findPage(String ownerId, Collection<TodoStatus> statuses, List<TodoSortOrder> sortOrders,
+                                 int offset, int limit) {
+    HibernateCriteriaBuilder cb = entityManager.unwrap(Session.class).getCriteriaBuilder();
+    CriteriaQuery<TodoItem> query = cb.createQuery(TodoItem.class);
+    Root<TodoItem> root = query.from(TodoItem.class);
+
+    query.select(root)
+        .where(cb.equal(root.get("ownerId"), ownerId), root.get("status").in(statuses))
+        .orderBy(toOrders(cb, root, sortOrders));
+
+    return entityManager.createQuery(query)
+        .setFirstResult(offset)
+        .setMaxResults(limit)
+        .getResultList();
+  }
+
+  @Override
+  public List<TodoItemRow> findRowPage(String ownerId, Collection<TodoStatus> statuses,
+                                       List<TodoSortOrder> sortOrders, int offset, int limit) {
+    HibernateCriteriaBuilder cb = entityManager.unwrap(Session.class).getCriteriaBuilder();
+    CriteriaQuery<TodoItemRow> query = cb.createQuery(TodoItemRow.class);
+    Root<TodoItem> root = query.from(TodoItem.class);
+
+    // A constructor expression returns plain records, so nothing is added to the persistence context
+    query.select(cb.construct(TodoItemRow.class, root.get("id"), root.get("status"), root.get("description"),
+            root.get("priority"), root.get("dueDate")))
+        .where(cb.equal(root.get("ownerId"), ownerId), root.get("status").in(statuses))
+        .orderBy(toOrders(cb, root, sortOrders));
+
+    return entityManager.createQuery(query)
+        .setFirstResult(offset)
+        .setMaxResults(limit)
+        .getResultList();
+  }
+
+  @Override
+  public List<TodoItem> findAllSorted(String ownerId, List<TodoSortOrder> sortOrders, int limit) {
+    HibernateCriteriaBuilder cb = entityManager.unwrap(Session.class).getCriteriaBuilder();
+    CriteriaQuery<TodoItem> query = cb.createQuery(TodoItem.class);
+    Root<TodoItem> root = query.from(TodoItem.class);
+
+    query.select(root)
+        .where(cb.equal(root.get("ownerId"), ownerId))
+        .orderBy(toOrders(cb, root, sortOrders));
+
+    TypedQuery<TodoItem> typedQuery = entityManager.createQuery(query);
+    if (limit >= 0) {
+      typedQuery.setMaxResults(limit);
+    }
+    return typedQuery.getResultList();
+  }
+
+  @Override
+  public List<TodoItem> findPageAfter(String ownerId, Collection<TodoStatus> statuses, TodoItemCursor after,
+                                      int limit) {
+    HibernateCriteriaBuilder cb = entityManager.unwrap(Session.class).getCriteriaBuilder();
+    CriteriaQuery<TodoItem> query = cb.createQuery(TodoItem.class);
+    Root<TodoItem> root = query.from(TodoItem.class);
+    Path<LocalDate> dueDate = root.get("dueDate");
+    Path<Integer> priority = root.get("priority");
+    Path<Long> id = root.get("id");
+
+    Predicate where = cb.and(cb.equal(root.get("ownerId"), ownerId), root.get("status").in(statuses));
+    if (after != null) {
+      where = cb.and(where, after(cb, dueDate, after.dueDate(),
+          after(cb, priority, after.priority(), cb.greaterThan(id, after.id()))));
+    }
+
+    query.select(root)
+        .where(where)
+        .orderBy(cb.asc(dueDate, false), cb.asc(priority, false), cb.asc(id));
+
+    return entityManager.createQuery(query)
+        .setMaxResults(limit)
+        .getResultList();
+  }
+
+  @Override
+  public Stream<TodoItem> streamByStatusIn(String ownerId, Collection<TodoStatus> statuses) {
+    HibernateCriteriaBuilder cb = entityManager.unwrap(Session.class).getCriteriaBuilder();
+    CriteriaQuery<TodoItem> query = cb.createQuery(TodoItem.class);
+    Root<TodoItem> root = query.from(TodoItem.class);
+
+    query.select(root)
+        .where(cb.equal(root.get("ownerId"), ownerId), root.get("status").in(statuses))
+        .orderBy(cb.asc(root.get("id")));
+
+    return entityManager.createQuery(query)
+        .setHint(AvailableHints.HINT_FETCH_SIZE, STREAM_FETCH_SIZE)
+        .setHint(AvailableHints.HINT_READ_ONLY, true)
+        .getResultStream()
+        .map(item -> {
+          entityManager.detach(item);
+          return item;
+        });
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public List<TodoItem> searchPage(String ownerId, Collection<TodoStatus> statuses, TodoItemSearchQuery query,
+                                   int offset, int limit) {
+    Query searchQuery = entityManager.createNativeQuery("select i.* from todo_items i"
+        + " join (" + matchesSql(query) + ") r on r.item_id = i.id"
+        + " where i.status in (:statuses)"
+        + " order by r.score desc, i.id", TodoItem.class);
+    return bindSearch(searchQuery, ownerId, statuses, query)
+        .setFirstResult(offset)
+        .setMaxResults(limit)
+        .getResultList();
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public List<TodoItemRow> searchRowPage(String ownerId, Collection<TodoStatus> statuses,
+                                         TodoItemSearchQuery query, int offset, int limit) {
+    NativeQuery<Object[]> searchQuery = entityManager.createNativeQuery("select i.id, i.status, i.description,"
+            + " i.priority, i.due_date from todo_items i"
+            + " join (" + matchesSql(query) + ") r on r.item_id = i.id"
+            + " where i.status in (:statuses)"
+            + " order by r.score desc, i.id")
+        .unwrap(NativeQuery.class)
+        .addScalar("id", Long.class)
+        .addScalar("status", String.class)
+        .addScalar("description", String.class)
+        .addScalar("priority", Integer.class)
+        .addScalar("due_date", LocalDate.class);
+    List<Object[]> rows = bindSearch(searchQuery, ownerId, statuses, query)
+        .setFirstResult(offset)
+        .setMaxResults(limit)
+        .getResultList();
+    return rows.stream()
+        .map(row -> new TodoItemRow((Long) row[0], TodoStatus.valueOf((String) row[1]), (String) row[2],
+            (Integer) row[3], (LocalDate) row[4]))
+        .toList();
+  }
+
+  @Override
+  public long countSearch(String ownerId, Collection<TodoStatus> statuses, TodoItemSearchQuery query) {
+    Query countQuery = entityManager.createNativeQuery("select count(*) from todo_items i"
+        + " join (" + matchesSql(query) + ") r on r.item_id = i.id"
+        + " where i.status in (:statuses)");
+    return ((Number) bindSearch(countQuery, ownerId, statuses, query).getSingleResult()).longValue();
+  }
+
+  @Override
+  public void replaceSearchTerms(String ownerId, Map<Long, Map<String, Integer>> termWeightsByItemId) {
+    entityManager.unwrap(Session.class).doWork(connection -> {
+      try (PreparedStatement delete = connection.prepareStatement("delete from todo_item_terms where item_id = ?");
+           PreparedStatement insert = connection.prepareStatement(
+               "insert into todo_item_terms (term, item_id, weight, owner_id) values (?, ?, ?, ?)")) {
+        for (Long itemId : termWeightsByItemId.keySet()) {
+          delete.setLong(1, itemId);
+          delete.addBatch();
+        }
+        delete.executeBatch();
+
+        for (Map.Entry<Long, Map<String, Integer>> item : termWeightsByItemId.entrySet()) {
+          // An item without words keeps a marker row, so the startup backfill doesn't index it again
+          Map<String, Integer> terms = item.getValue().isEmpty()
+              ? Map.of(TodoItemSearchIndex.NO_TERMS, 0)
+              : item.getValue();
+          for (Map.Entry<String, Integer> term : terms.entrySet()) {
+            insert.setString(1, term.getKey());
+            insert.setLong(2, item.getKey());
+            insert.setInt(3, term.getValue());
+            insert.setString(4, ownerId);
+            insert.addBatch();
+          }
+        }
+        insert.executeBatch();
+      }
+    });
+  }
+
+  @Override
+  public int deleteSearchTerms(Collection<Long> itemIds) {
+    return entityManager.createNativeQuery("delete from todo_item_terms where item_id in (:itemIds)")
+        .setParameter("itemIds", itemIds)
+        .executeUpdate();
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public List<Long> findIdsMissingSearchTerms(long afterId, int limit) {
+    List<Number> ids = entityManager.createNativeQuery("select i.id from todo_items i where i.id > :afterId"
+            + " and not exists (select 1 from todo_item_terms t where t.item_id = i.id)"
+            + " order by i.id")
+        .setParameter("afterId", afterId)
+        .setMaxResults(limit)
+        .getResultList();
+    return ids.stream().map(Number::longValue).toList();
+  }
+
+  /**
+   * A derived table of the IDs of the owner's items matching every term, with their summed weights as score.
+   * Each term is an index range scan on (owner_id, term, item_id), so the cost depends on how many of the owner's
+   * items contain the terms rather than on the size of the table.
+   */
+  private static String matchesSql(TodoItemSearchQuery query) {
+    StringJoiner branches = new StringJoiner(" union all ");
+    for (int i = 0; i < query.terms().size(); i++) {
+      branches.add("select item_id, weight score from todo_item_terms where owner_id = :ownerId and term = :term" + i);
+    }
+    if (query.prefix() != null) {
+      // Terms only contain letters and digits, so the prefix needs no escaping
+      branches.add("select item_id, sum(weight) score from todo_item_terms"
+          + " where owner_id = :ownerId and term like :prefix"
+          + " group by item_id");
+    }
+    return "select item_id, sum(score) score from (" + branches + ") m"
+        + " group by item_id having count(*) = " + query.termCount();
+  }
+
+  private static Query bindSearch(Query nativeQuery, String ownerId, Collection<TodoStatus> statuses,
+                                  TodoItemSearchQuery query) {
+    nativeQuery.setParameter("ownerId", ownerId);
+    nativeQuery.setParameter("statuses", statuses.stream().map(TodoStatus::name).toList());
+    for (int i = 0; i < query.terms().size(); i++) {
+      nativeQuery.setParameter("term" + i, query.terms().get(i));
+    }
+    if (query.prefix() != null) {
+      nativeQuery.setParameter("prefix", query.prefix() + "%");
+    }
+    return nativeQuery;
+  }
+
+  /**
+   * Rows after value in a nulls-last ascending column, where rows with an equal value are compared by tieBreak.
+   * Null values sort last, so after a null only other nulls can follow.
+   */
+  private static <T extends Comparable<? super T>> Predicate after(CriteriaBuilder cb, Path<T> column, T value,
+                                                                   Predicate tieBreak) {
+    if (value == null) {
+      return cb.and(cb.isNull(column), tieBreak);
+    }
+    return cb.or(
+        cb.greaterThan(column, value),
+        cb.isNull(column),
+        cb.and(cb.equal(column, value), tieBreak));
+  }
+
+  /**
+   * Translate sort orders into ORDER BY expressions, always ending with the ID so paging is stable
+   */
+  private List<Order> toOrders(HibernateCriteriaBuilder cb, Root<TodoItem> root, List<TodoSortOrder> sortOrders) {
+    List<Order> orders = new ArrayList<>();
+    for (TodoSortOrder sortOrder : sortOrders) {
+      Expression<?> expression = sortExpression(cb, root, sortOrder.field());
+      boolean ascending = sortOrder.direction() == Sort.Direction.ASC;
+      orders.add(ascending
+          ? cb.asc(expression, sortOrder.isNullsFirst())
+          : cb.desc(expression, sortOrder.isNullsFirst()));
+    }
+    orders.add(cb.asc(root.get("id")));
+    return orders;
+  }
+
+  private Expression<?> sortExpression(HibernateCriteriaBuilder cb, Root<TodoItem> root, TodoSortField field) {
+    return switch (field) {
+      case STATUS -> {
+        // Statuses are stored as strings, so sort on the enum order rather than alphabetically
+        CriteriaBuilder.SimpleCase<TodoStatus, Integer> statusOrder = cb.selectCase(root.get("status"));
+        for (TodoStatus status : TodoStatus.values()) {
+          statusOrder.when(status, status.ordinal());
+        }
+        yield statusOrder.otherwise(TodoStatus.values().length);
+      }
+      case DESCRIPTION -> cb.lower(root.get("description"));
+      case PRIORITY -> root.get("priority");
+      // Overdue dates are exactly the dates before today, so date order already puts them first
+      case DUE_DATE -> root.get("dueDate");
+    };
+  }
+}
@@ -0,0 +1,18 @@
+package com.ssta.todo;
+
+import java.time.LocalDate;
+
+/**
+ * The columns of a TodoItem the grid shows. Selected directly into the record rather than loading entities, so
+ * listing skips the detailed notes and dates, and Hibernate keeps no managed copy or dirty-checking snapshot of
+ * each row. Edit the item through {@link TodoItemService#findById}.
+ */
+public record TodoItemRow(Long id, TodoStatus status, String description, Integer priority, LocalDate dueDate) {
+
+  /**
+   * A row that only carries an ID, for looking up the row with that ID in the grid
+   */
+  public static TodoItemRow withId(Long id) {
+    return new TodoItemRow(id, null, null, null, null);
+  }
+}
@@ -0,0 +1,111 @@
+package com.ssta.todo;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Tokenization for the full-text search index over TodoItem descriptions and detailed notes.
+ * <p>
+ * The index is the todo_item_terms table, holding a row per distinct word of each item with a weight, and is kept
+ * in step by {@link TodoItemService} in the same transaction as each change. Items saved before the index existed
+ * are added in the background at startup, and only appear in search results once indexed. An item with no words
+ * gets a single {@link #NO_TERMS} row instead, so it counts as indexed.
+ */
+@Component
+public class TodoItemSearchIndex {
+
+  private static final Logger logger = LoggerFactory.getLogger(TodoItemSearchIndex.class);
+  static final int MAX_TERM_LENGTH = 64;
+  // Marks an item indexed without any words; searches never look up an empty term
+  static final String NO_TERMS = "";
+  // Words in the description count for more than words in the notes when ranking
+  private static final int DESCRIPTION_WEIGHT = 2;
+  private static final int NOTES_WEIGHT = 1;
+  private static final int BACKFILL_CHUNK_SIZE = 1000;
+
+  private final TodoItemService todoItemService;
+  private final TaskScheduler taskScheduler;
+
+  public TodoItemSearchIndex(TodoItemService todoItemService, TaskScheduler taskScheduler) {
+    this.todoItemService = todoItemService;
+    this.taskScheduler = taskScheduler;
+  }
+
+  /**
+   * Split text into lower case words of letters and digits, truncated to the indexed length
+   */
+  static List<String> tokenize(String text) {
+    List<String> words = new ArrayList<>();
+    if (text == null) {
+      return words;
+    }
+
+    String lowerCase = text.toLowerCase(Locale.ROOT);
+    int start = -1;
+    for (int i = 0; i <= lowerCase.length(); i++) {
+      boolean wordChar = i < lowerCase.length() && Character.isLetterOrDigit(lowerCase.charAt(i));
+      if (wordChar && start < 0) {
+        start = i;
+      } else if (!wordChar && start >= 0) {
+        words.add(lowerCase.substring(start, Math.min(i, start + MAX_TERM_LENGTH)));
+        start = -1;
+      }
+    }
+    return words;
+  }
+
+  /**
+   * The indexed terms of a TodoItem, each weighted by how often and where it occurs
+   */
+  static Map<String, Integer> termWeights(TodoItem item) {
+    Map<String, Integer> weights = new HashMap<>();
+    for (String term : tokenize(item.getDescription())) {
+      weights.merge(term, DESCRIPTION_WEIGHT, Integer::sum);
+    }
+    for (String term : tokenize(item.getDetailedNotes())) {
+      weights.merge(term, NOTES_WEIGHT, Integer::sum);
+    }
+    return weights;
+  }
+
+  /**
+   * Index items missing from the search index, off the startup thread
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  public void onApplicationReady() {
+    taskScheduler.schedule(this::indexMissingItems, Instant.now());
+  }
+
+  /**
+   * Index all items missing from the search index, one chunk per transaction, returning the number indexed
+   */
+  public long indexMissingItems() {
+    try {
+      long indexed = 0;
+      long afterId = 0;
+      List<Long> ids;
+      while (!(ids = todoItemService.findIdsMissingSearchTerms(afterId, BACKFILL_CHUNK_SIZE)).isEmpty()) {
+        indexed += todoItemService.reindexSearchTerms(ids);
+        afterId = ids.get(ids.size() - 1);
+      }
+      if (indexed > 0) {
+        logger.info("Added {} TodoItems to the search index", indexed);
+      }
+      return indexed;
+    } catch (Exception e) {
+      logger.error("Failed to add TodoItems to the search index", e);
+      return 0;
+    }
+  }
+}
@@ -0,0 +1,63 @@
+package com.ssta.todo;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * A parsed search over TodoItem descriptions and detailed notes. Items must contain every term, and a word starting
+ * with the prefix if there is one. The last word typed is a prefix, so results narrow as the user types, unless the
+ * text ends with a space. Words after the first {@value #MAX_TERMS} are ignored.
+ */
+public record TodoItemSearchQuery(List<String> terms, String prefix) {
+
+  static final int MAX_TERMS = 8;
+  // Shorter prefixes match too many words to look up quickly, so they must match whole words
+  static final int MIN_PREFIX_LENGTH = 2;
+
+  public TodoItemSearchQuery {
+    terms = List.copyOf(terms);
+  }
+
+  /**
+   * Parse search text, returning empty if it contains no words
+   */
+  public static Optional<TodoItemSearchQuery> parse(String text) {
+    if (text == null) {
+      return Optional.empty();
+    }
+
+    List<String> words = TodoItemSearchIndex.tokenize(text);
+    if (words.isEmpty()) {
+      return Optional.empty();
+    }
+    boolean truncated = words.size() > MAX_TERMS;
+    if (truncated) {
+      words = words.subList(0, MAX_TERMS);
+    }
+
+    String prefix = null;
+    String last = words.get(words.size() - 1);
+    boolean typingLastWord = !truncated && !Character.isWhitespace(text.charAt(text.length() - 1));
+    if (typingLastWord && last.length() >= MIN_PREFIX_LENGTH) {
+      prefix = last;
+      words = words.subList(0, words.size() - 1);
+    }
+
+    Set<String> terms = new LinkedHashSet<>(words);
+    if (prefix != null) {
+      // A prefix that is also a whole term adds nothing
+      terms.remove(prefix);
+    }
+    return Optional.of(new TodoItemSearchQuery(new ArrayList<>(terms), prefix));
+  }
+
+  /**
+   * Number of terms an item must match, counting the prefix
+   */
+  public int termCount() {
+    return terms.size() + (prefix == null ? 0 : 1);
+  }
+}
@@ -1,34 +1,70 @@
 package com.ssta.todo;
 
+import com.ssta.todo.TodoItemChangedEvent.Change;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataAccessException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+/**
+ * Reads and changes the TodoItems of the {@link CurrentUser}, kept in the {@link TodoItemStore} chosen by todo.store.
+ * Items of other users are never returned, and changing them fails as if they did not exist.
+ * <p>
+ * Methods that only read run in read-only transactions: Hibernate neither flushes nor keeps dirty-checking snapshots
+ * of what they load, the JDBC connection is marked read-only, and with a read replica configured they run on it.
+ * Reads inside a write, such as the locked lookups before an update, stay in the write's transaction, as do reads
+ * made through {@link #readFromPrimary}.
+ */
 @Service
 @Transactional
+@Timed(value = "todo.service", description = "Latency of TodoItemService calls")
 public class TodoItemService {
 
   private static final Logger logger = LoggerFactory.getLogger(TodoItemService.class);
-  private final TodoItemRepository repository;
+  private static final int BULK_CHUNK_SIZE = 1000;
 
-  public TodoItemService(TodoItemRepository repository) {
-    this.repository = repository;
+  private final TodoItemStore store;
+  private final CurrentUser currentUser;
+  private final ApplicationEventPublisher eventPublisher;
+  private final MeterRegistry meterRegistry;
+
+  public TodoItemService(TodoItemStore store, CurrentUser currentUser,
+                         ApplicationEventPublisher eventPublisher, MeterRegistry meterRegistry) {
+    this.store = store;
+    this.currentUser = currentUser;
+    this.eventPublisher = eventPublisher;
+    this.meterRegistry = meterRegistry;
   }
 
   /**
    * Get all TodoItems
    */
+  @Transactional(readOnly = true)
   public List<TodoItem> findAll() {
     try {
-      return repository.findAll();
+      return recordRows("findAll", store.findByOwnerId(currentUser.getId()));
     } catch (DataAccessException e) {
       logger.error("Database error while fetching all TodoItems", e);
       throw new RuntimeException("Failed to retrieve TODO items from database", e);
@@ -41,12 +77,14 @@ public class TodoItemService {
   /**
    * Find TodoItems by one or more statuses
    */
+  @Transactional(readOnly = true)
   public List<TodoItem> findByStatus(TodoStatus... statuses) {
     try {
       if (statuses == null || statuses.length == 0) {
         return findAll();
       }
-      return repository.findByStatusIn(Arrays.asList(statuses));
+      return recordRows("findByStatus",
+          store.findByOwnerIdAndStatusIn(currentUser.getId(), Arrays.asList(statuses)));
     } catch (DataAccessException e) {
       logger.error("Database error while filtering TodoItems by status", e);
       throw new RuntimeException("Failed to filter TODO items by status", e);
@@ -57,44 +95,308 @@ public class TodoItemService {
   }
 
   /**
-   * Save (create or update) a TodoItem
+   * Fetch one page of TodoItems with the given statuses, sorted by the database
    */
-  public TodoItem save(TodoItem item) {
+  @Transactional(readOnly = true)
+  public List<TodoItem> findPage(Collection<TodoStatus> statuses, List<TodoSortOrder> sortOrders,
+                                 int offset, int limit) {
+    try {
+      if (sortOrders == null) {
+        throw new IllegalArgumentException("Sort orders cannot be null");
+      }
+      if (offset < 0 || limit < 0) {
+        throw new IllegalArgumentException("Offset and limit must not be negative");
+      }
+      if (statuses == null || statuses.isEmpty() || limit == 0) {
+        return List.of();
+      }
+      return recordRows("findPage", store.findPage(currentUser.getId(), statuses, sortOrders, offset, limit));
+    } catch (IllegalArgumentException e) {
+      logger.warn("Validation error while fetching a page of TodoItems: {}", e.getMessage());
+      throw e;
+    } catch (DataAccessException e) {
+      logger.error("Database error while fetching a page of TodoItems", e);
+      throw new RuntimeException("Failed to retrieve TODO items from database", e);
+    } catch (Exception e) {
+      logger.error("Unexpected error while fetching a page of TodoItems", e);
+      throw new RuntimeException("An unexpected error occurred while retrieving TODO items", e);
+    }
+  }
+
+  /**
+   * Fetch one page of grid rows with the given statuses, sorted by the database like {@link #findPage}. Rows are
+   * selected into records in a read-only transaction, so no entities are loaded or dirty-checked.
+   */
+  @Transactional(readOnly = true)
+  public List<TodoItemRow> findRowPage(Collection<TodoStatus> statuses, List<TodoSortOrder> sortOrders,
+                                       int offset, int limit) {
+    try {
+      if (sortOrders == null) {
+        throw new IllegalArgumentException("Sort orders cannot be null");
+      }
+      if (offset < 0 || limit < 0) {
+        throw new IllegalArgumentException("Offset and limit must not be negative");
+      }
+      if (statuses == null || statuses.isEmpty() || limit == 0) {
+        return List.of();
+      }
+      return recordRows("findRowPage",
+          store.findRowPage(currentUser.getId(), statuses, sortOrders, offset, limit));
+    } catch (IllegalArgumentException e) {
+      logger.warn("Validation error while fetching a page of TodoItem rows: {}", e.getMessage());
+      throw e;
+    } catch (DataAccessException e) {
+      logger.error("Database error while fetching a page of TodoItem rows", e);
+      throw new RuntimeException("Failed to retrieve TODO items from database", e);
+    } catch (Exception e) {
+      logger.error("Unexpected error while fetching a page of TodoItem rows", e);
+      throw new RuntimeException("An unexpected error occurred while retrieving TODO items", e);
+    }
+  }
+
+  /**
+   * Count TodoItems with the given statuses
+   */
+  @Transactional(readOnly = true)
+  public long countByStatus(Collection<TodoStatus> statuses) {
+    try {
+      if (statuses == null || statuses.isEmpty()) {
+        return 0;
+      }
+      return store.countByOwnerIdAndStatusIn(currentUser.getId(), statuses);
+    } catch (DataAccessException e) {
+      logger.error("Database error while counting TodoItems by status", e);
+      throw new RuntimeException("Failed to count TODO items in database", e);
+    } catch (Exception e) {
+      logger.error("Unexpected error while counting TodoItems by status", e);
+      throw new RuntimeException("An unexpected error occurred while counting TODO items", e);
+    }
+  }
+
+  /**
+   * Fetch up to limit TodoItems with the given statuses after the cursor, in due date, priority and ID order.
+   * Unlike offset paging, the cost of a page does not grow with its position.
+   */
+  @Transactional(readOnly = true)
+  public List<TodoItem> findPageAfter(Collection<TodoStatus> statuses, TodoItemCursor after, int limit) {
+    try {
+      if (limit < 1) {
+        throw new IllegalArgumentException("Limit must be positive");
+      }
+      if (statuses == null || statuses.isEmpty()) {
+        return List.of();
+      }
+      return recordRows("findPageAfter", store.findPageAfter(currentUser.getId(), statuses, after, limit));
+    } catch (IllegalArgumentException e) {
+      logger.warn("Validation error while fetching a page of TodoItems: {}", e.getMessage());
+      throw e;
+    } catch (DataAccessException e) {
+      logger.error("Database error while fetching a page of TodoItems after {}", after, e);
+      throw new RuntimeException("Failed to retrieve TODO items from database", e);
+    } catch (Exception e) {
+      logger.error("Unexpected error while fetching a page of TodoItems after {}", after, e);
+      throw new RuntimeException("An unexpected error occurred while retrieving TODO items", e);
+    }
+  }
+
+  /**
+   * Fetch one page of TodoItems with the given statuses that match the search text, best matches first
+   */
+  @Transactional(readOnly = true)
+  public List<TodoItem> searchPage(Collection<TodoStatus> statuses, String text, int offset, int limit) {
+    try {
+      if (offset < 0 || limit < 0) {
+        throw new IllegalArgumentException("Offset and limit must not be negative");
+      }
+      Optional<TodoItemSearchQuery> query = TodoItemSearchQuery.parse(text);
+      if (query.isEmpty() || statuses == null || statuses.isEmpty() || limit == 0) {
+        return List.of();
+      }
+      return recordRows("searchPage", store.searchPage(currentUser.getId(), statuses, query.get(), offset, limit));
+    } catch (IllegalArgumentException e) {
+      logger.warn("Validation error while searching TodoItems: {}", e.getMessage());
+      throw e;
+    } catch (DataAccessException e) {
+      logger.error("Database error while searching TodoItems for '{}'", text, e);
+      throw new RuntimeException("Failed to search TODO items in database", e);
+    } catch (Exception e) {
+      logger.error("Unexpected error while searching TodoItems for '{}'", text, e);
+      throw new RuntimeException("An unexpected error occurred while searching TODO items", e);
+    }
+  }
+
+  /**
+   * Fetch one page of grid rows with the given statuses that match the search text, best matches first, without
+   * loading entities
+   */
+  @Transactional(readOnly = true)
+  public List<TodoItemRow> searchRowPage(Collection<TodoStatus> statuses, String text, int offset, int limit) {
     try {
-      if (item == null) {
-        throw new IllegalArgumentException("TodoItem cannot be null");
+      if (offset < 0 || limit < 0) {
+        throw new IllegalArgumentException("Offset and limit must not be negative");
       }
+      Optional<TodoItemSearchQuery> query = TodoItemSearchQuery.parse(text);
+      if (query.isEmpty() || statuses == null || statuses.isEmpty() || limit == 0) {
+        return List.of();
+      }
+      return recordRows("searchRowPage",
+          store.searchRowPage(currentUser.getId(), statuses, query.get(), offset, limit));
+    } catch (IllegalArgumentException e) {
+      logger.warn("Validation error while searching TodoItem rows: {}", e.getMessage());
+      throw e;
+    } catch (DataAccessException e) {
+      logger.error("Database error while searching TodoItem rows for '{}'", text, e);
+      throw new RuntimeException("Failed to search TODO items in database", e);
+    } catch (Exception e) {
+      logger.error("Unexpected error while searching TodoItem rows for '{}'", text, e);
+      throw new RuntimeException("An unexpected error occurred while searching TODO items", e);
+    }
+  }
 
-      // Validate description
-      if (item.getDescription() == null || item.getDescription().trim().isEmpty()) {
-        throw new IllegalArgumentException("Description is required");
+  /**
+   * Count TodoItems with the given statuses that match the search text
+   */
+  @Transactional(readOnly = true)
+  public long countSearch(Collection<TodoStatus> statuses, String text) {
+    try {
+      Optional<TodoItemSearchQuery> query = TodoItemSearchQuery.parse(text);
+      if (query.isEmpty() || statuses == null || statuses.isEmpty()) {
+        return 0;
       }
+      return store.countSearch(currentUser.getId(), statuses, query.get());
+    } catch (IllegalArgumentException e) {
+      logger.warn("Validation error while counting TodoItem search results: {}", e.getMessage());
+      throw e;
+    } catch (DataAccessException e) {
+      logger.error("Database error while counting TodoItems matching '{}'", text, e);
+      throw new RuntimeException("Failed to search TODO items in database", e);
+    } catch (Exception e) {
+      logger.error("Unexpected error while counting TodoItems matching '{}'", text, e);
+      throw new RuntimeException("An unexpected error occurred while searching TODO items", e);
+    }
+  }
+
+  /**
+   * Find up to limit IDs of TodoItems of any user after afterId that are missing from the search index, in ID order
+   */
+  @Transactional(readOnly = true)
+  public List<Long> findIdsMissingSearchTerms(long afterId, int limit) {
+    try {
+      return store.findIdsMissingSearchTerms(afterId, limit);
+    } catch (DataAccessException e) {
+      logger.error("Database error while finding TodoItems missing from the search index", e);
+      throw new RuntimeException("Failed to read the TODO item search index", e);
+    }
+  }
 
-      if (item.getDescription().length() > 400) {
-        throw new IllegalArgumentException("Description must not exceed 400 characters");
+  /**
+   * Rebuild the search terms of TodoItems of any user by ID, returning the number of items indexed
+   */
+  public int reindexSearchTerms(Collection<Long> ids) {
+    try {
+      validateIds(ids);
+      List<TodoItem> items = store.findAllById(ids);
+      items.stream()
+          .collect(Collectors.groupingBy(TodoItem::getOwnerId))
+          .forEach((ownerId, ownerItems) -> store.replaceSearchTerms(ownerId, termWeightsById(ownerItems)));
+      return items.size();
+    } catch (IllegalArgumentException e) {
+      logger.warn("Validation error while indexing TodoItems: {}", e.getMessage());
+      throw e;
+    } catch (DataAccessException e) {
+      logger.error("Database error while indexing TodoItems", e);
+      throw new RuntimeException("Failed to update the TODO item search index", e);
+    }
+  }
+
+  /**
+   * Pass every TodoItem with the given statuses to the action in ID order, returning the number of items.
+   * Rows are read as they are consumed rather than loaded up front, so memory use does not grow with the result.
+   */
+  @Transactional(readOnly = true)
+  public long forEachByStatus(Collection<TodoStatus> statuses, Consumer<TodoItem> action) {
+    try {
+      if (action == null) {
+        throw new IllegalArgumentException("Action cannot be null");
+      }
+      if (statuses == null || statuses.isEmpty()) {
+        return 0;
       }
 
-      // Validate detailed notes if present
-      if (item.getDetailedNotes() != null && item.getDetailedNotes().length() > 400) {
-        throw new IllegalArgumentException("Detailed notes must not exceed 400 characters");
+      long count = 0;
+      try (Stream<TodoItem> items = store.streamByStatusIn(currentUser.getId(), statuses)) {
+        for (TodoItem item : (Iterable<TodoItem>) items::iterator) {
+          action.accept(item);
+          count++;
+        }
       }
+      logger.info("Streamed {} TodoItems", count);
+      return count;
+    } catch (IllegalArgumentException e) {
+      logger.warn("Validation error while streaming TodoItems: {}", e.getMessage());
+      throw e;
+    } catch (DataAccessException e) {
+      logger.error("Database error while streaming TodoItems", e);
+      throw new RuntimeException("Failed to stream TODO items from database", e);
+    } catch (Exception e) {
+      logger.error("Unexpected error while streaming TodoItems", e);
+      throw new RuntimeException("An unexpected error occurred while streaming TODO items", e);
+    }
+  }
 
-      // Validate priority if present
-      if (item.getPriority() != null && (item.getPriority() < 1 || item.getPriority() > 5)) {
-        throw new IllegalArgumentException("Priority must be between 1 and 5");
+  /**
+   * Find up to limit TodoItems changed at or after the given time, oldest change first
+   */
+  @Transactional(readOnly = true)
+  public List<TodoItem> findUpdatedSince(LocalDateTime since, int limit) {
+    try {
+      if (since == null) {
+        throw new IllegalArgumentException("Since cannot be null");
       }
+      if (limit < 1) {
+        throw new IllegalArgumentException("Limit must be positive");
+      }
+      return recordRows("findUpdatedSince", store.findUpdatedSince(currentUser.getId(), since, limit));
+    } catch (IllegalArgumentException e) {
+      logger.warn("Validation error while fetching updated TodoItems: {}", e.getMessage());
+      throw e;
+    } catch (DataAccessException e) {
+      logger.error("Database error while fetching TodoItems updated since {}", since, e);
+      throw new RuntimeException("Failed to retrieve updated TODO items from database", e);
+    } catch (Exception e) {
+      logger.error("Unexpected error while fetching TodoItems updated since {}", since, e);
+      throw new RuntimeException("An unexpected error occurred while retrieving updated TODO items", e);
+    }
+  }
+
+  /**
+   * Save (create or update) a TodoItem of the current user
+   */
+  public TodoItem save(TodoItem item) {
+    try {
+      validate(item, new TodoItemValidator.Result());
+      String ownerId = currentUser.getId();
 
-      // Set default status if null
-      if (item.getStatus() == null) {
-        item.setStatus(TodoStatus.TODO);
+      // Read the stored state for the change event, before the merge in save() copies over it reusing the loaded row
+      StoredState previous = null;
+      if (item.getId() != null) {
+        previous = store.findByIdAndOwnerId(item.getId(), ownerId)
+            .map(StoredState::of)
+            .orElseThrow(() -> new TodoItemNotFoundException(item.getId()));
       }
+      item.setOwnerId(ownerId);
 
-      TodoItem savedItem = repository.save(item);
+      TodoItem savedItem = store.save(item);
+      store.replaceSearchTerms(ownerId, Map.of(savedItem.getId(), TodoItemSearchIndex.termWeights(savedItem)));
+      publishChanges(ownerId, List.of(changeOf(previous, savedItem)));
       logger.info("Successfully saved TodoItem with ID: {}", savedItem.getId());
       return savedItem;
     } catch (IllegalArgumentException e) {
       logger.warn("Validation error while saving TodoItem: {}", e.getMessage());
       throw e;
+    } catch (OptimisticLockingFailureException e) {
+      logger.warn("TodoItem with ID {} was modified concurrently", item.getId());
+      throw e;
     } catch (DataAccessException e) {
       logger.error("Database error while saving TodoItem", e);
       throw new RuntimeException("Failed to save TODO item to database", e);
@@ -105,19 +407,76 @@ public class TodoItemService {
   }
 
   /**
-   * Delete a TodoItem by ID
+   * Save (create or update) many TodoItems of the current user in one transaction, with JDBC-batched statements
+   */
+  public List<TodoItem> saveAll(List<TodoItem> items) {
+    try {
+      if (items == null) {
+        throw new IllegalArgumentException("TodoItems cannot be null");
+      }
+      TodoItemValidator.Result validation = new TodoItemValidator.Result();
+      for (TodoItem item : items) {
+        validate(item, validation);
+      }
+      String ownerId = currentUser.getId();
+
+      // Load existing items up front so the merges below don't each select their row
+      List<Long> existingIds = items.stream()
+          .map(TodoItem::getId)
+          .filter(Objects::nonNull)
+          .toList();
+      Map<Long, StoredState> previousStates = new HashMap<>();
+      if (!existingIds.isEmpty()) {
+        store.findByOwnerIdAndIdIn(ownerId, existingIds)
+            .forEach(existing -> previousStates.put(existing.getId(), StoredState.of(existing)));
+        for (Long id : existingIds) {
+          if (!previousStates.containsKey(id)) {
+            throw new TodoItemNotFoundException(id);
+          }
+        }
+      }
+      items.forEach(item -> item.setOwnerId(ownerId));
+
+      List<TodoItem> savedItems = store.saveAll(items);
+      store.replaceSearchTerms(ownerId, termWeightsById(savedItems));
+      publishChanges(ownerId, savedItems.stream()
+          .map(saved -> changeOf(previousStates.get(saved.getId()), saved))
+          .toList());
+      logger.info("Successfully saved {} TodoItems", savedItems.size());
+      return savedItems;
+    } catch (IllegalArgumentException e) {
+      logger.warn("Validation error while saving TodoItems: {}", e.getMessage());
+      throw e;
+    } catch (OptimisticLockingFailureException e) {
+      logger.warn("TodoItems were modified concurrently: {}", e.getMessage());
+      throw e;
+    } catch (DataAccessException e) {
+      logger.error("Database error while saving TodoItems", e);
+      throw new RuntimeException("Failed to save TODO items to database", e);
+    } catch (Exception e) {
+      logger.error("Unexpected error while saving TodoItems", e);
+      throw new RuntimeException("An unexpected error occurred while saving TODO items", e);
+    }
+  }
+
+  /**
+   * Delete a TodoItem of the current user by ID
    */
   public void delete(Long id) {
     try {
       if (id == null) {
         throw new IllegalArgumentException("ID cannot be null");
       }
+      String ownerId = currentUser.getId();
 
-      if (!repository.existsById(id)) {
-        throw new IllegalArgumentException("TodoItem with ID " + id + " not found");
-      }
+      TodoItemStore.StatusAndDueDate previous = store
+          .findStatusAndDueDateByIdAndOwnerIdForUpdate(id, ownerId)
+          .orElseThrow(() -> new TodoItemNotFoundException(id));
+
+      store.deleteByOwnerIdAndIdIn(ownerId, List.of(id));
+      store.deleteSearchTerms(List.of(id));
+      publishChanges(ownerId, List.of(Change.deleted(id, previous.getStatus(), previous.getDueDate())));
 
-      repository.deleteById(id);
       logger.info("Successfully deleted TodoItem with ID: {}", id);
     } catch (IllegalArgumentException e) {
       logger.warn("Validation error while deleting TodoItem: {}", e.getMessage());
@@ -132,26 +491,105 @@ public class TodoItemService {
   }
 
   /**
-   * Cycle the status of a TodoItem to the next status
+   * Delete many TodoItems of the current user by ID, returning the number deleted. IDs that don't exist or belong
+   * to other users are ignored.
+   */
+  public int deleteAll(Collection<Long> ids) {
+    try {
+      validateIds(ids);
+      String ownerId = currentUser.getId();
+
+      int deleted = 0;
+      List<Change> changes = new ArrayList<>();
+      for (List<Long> chunk : chunks(ids)) {
+        List<Long> deletedIds = new ArrayList<>();
+        for (TodoItemStore.StatusAndDueDate row
+            : store.findStatusesAndDueDatesByOwnerIdAndIdInForUpdate(ownerId, chunk)) {
+          changes.add(Change.deleted(row.getId(), row.getStatus(), row.getDueDate()));
+          deletedIds.add(row.getId());
+        }
+        if (!deletedIds.isEmpty()) {
+          deleted += store.deleteByOwnerIdAndIdIn(ownerId, deletedIds);
+          store.deleteSearchTerms(deletedIds);
+        }
+      }
+      publishChanges(ownerId, changes);
+      logger.info("Successfully deleted {} TodoItems", deleted);
+      return deleted;
+    } catch (IllegalArgumentException e) {
+      logger.warn("Validation error while deleting TodoItems: {}", e.getMessage());
+      throw e;
+    } catch (DataAccessException e) {
+      logger.error("Database error while deleting TodoItems", e);
+      throw new RuntimeException("Failed to delete TODO items from database", e);
+    } catch (Exception e) {
+      logger.error("Unexpected error while deleting TodoItems", e);
+      throw new RuntimeException("An unexpected error occurred while deleting TODO items", e);
+    }
+  }
+
+  /**
+   * Set the status of many TodoItems of the current user by ID, returning the number updated. IDs that don't exist
+   * or belong to other users are ignored.
+   */
+  public int updateStatus(Collection<Long> ids, TodoStatus status) {
+    try {
+      validateIds(ids);
+      if (status == null) {
+        throw new IllegalArgumentException("Status cannot be null");
+      }
+
+      String ownerId = currentUser.getId();
+      LocalDateTime now = LocalDateTime.now();
+      int updated = 0;
+      List<Change> changes = new ArrayList<>();
+      for (List<Long> chunk : chunks(ids)) {
+        for (TodoItemStore.StatusAndDueDate row
+            : store.findStatusesAndDueDatesByOwnerIdAndIdInForUpdate(ownerId, chunk)) {
+          // The update below increments every row's version
+          changes.add(Change.statusChanged(row.getId(), row.getStatus(), status, row.getDueDate(),
+              row.getVersion() + 1));
+        }
+        updated += store.updateStatusByOwnerIdAndIdIn(ownerId, chunk, status, now);
+      }
+      publishChanges(ownerId, changes);
+      logger.info("Successfully set status {} on {} TodoItems", status, updated);
+      return updated;
+    } catch (IllegalArgumentException e) {
+      logger.warn("Validation error while updating TodoItem statuses: {}", e.getMessage());
+      throw e;
+    } catch (DataAccessException e) {
+      logger.error("Database error while updating TodoItem statuses", e);
+      throw new RuntimeException("Failed to update TODO item statuses in database", e);
+    } catch (Exception e) {
+      logger.error("Unexpected error while updating TodoItem statuses", e);
+      throw new RuntimeException("An unexpected error occurred while updating TODO item statuses", e);
+    }
+  }
+
+  /**
+   * Cycle the status of a TodoItem of the current user to the next status, returning the new status
    */
-  public TodoItem cycleStatus(Long id) {
+  public TodoStatus cycleStatus(Long id) {
     try {
       if (id == null) {
         throw new IllegalArgumentException("ID cannot be null");
       }
+      String ownerId = currentUser.getId();
 
-      Optional<TodoItem> optionalItem = repository.findById(id);
-      if (optionalItem.isEmpty()) {
-        throw new IllegalArgumentException("TodoItem with ID " + id + " not found");
+      if (store.cycleStatusByIdAndOwnerId(id, ownerId, LocalDateTime.now()) == 0) {
+        throw new TodoItemNotFoundException(id);
       }
 
-      TodoItem item = optionalItem.get();
-      TodoStatus oldStatus = item.getStatus();
-      item.setStatus(item.getStatus().next());
-      TodoItem updatedItem = repository.save(item);
+      // Still holding the row lock, so this reads our own update
+      TodoItemStore.StatusAndDueDate cycled = store.findStatusAndDueDateByIdAndOwnerId(id, ownerId)
+          .orElseThrow();
+      TodoStatus newStatus = cycled.getStatus();
+      publishChanges(ownerId, List.of(Change.statusChanged(id, newStatus.previous(), newStatus, cycled.getDueDate(),
+          cycled.getVersion())));
       logger.info("Successfully cycled status for TodoItem ID {} from {} to {}",
-          id, oldStatus, updatedItem.getStatus());
-      return updatedItem;
+          id, newStatus.previous(), newStatus);
+      return newStatus;
     } catch (IllegalArgumentException e) {
       logger.warn("Validation error while cycling status for TodoItem: {}", e.getMessage());
       throw e;
@@ -165,17 +603,99 @@ public class TodoItemService {
   }
 
   /**
-   * Get all TodoItems with custom sorting
+   * Run reads of this service on the primary database rather than a read replica. For results that are cached or
+   * shown in place of what a change just replaced, which a lagging replica could leave stale until the next change.
+   * The reads join this method's transaction, which is read-write but changes nothing.
    */
+  public <T> T readFromPrimary(Supplier<T> reads) {
+    return reads.get();
+  }
+
+  /**
+   * Count the TodoItems of every user by status and due date, for checking counts maintained from change events
+   */
+  @Transactional(readOnly = true)
+  public List<TodoItemStore.StatusAndDueDateCount> countByOwnerStatusAndDueDate() {
+    try {
+      return store.countByOwnerStatusAndDueDate();
+    } catch (DataAccessException e) {
+      logger.error("Database error while counting TodoItems by status and due date", e);
+      throw new RuntimeException("Failed to count TODO items in database", e);
+    } catch (Exception e) {
+      logger.error("Unexpected error while counting TodoItems by status and due date", e);
+      throw new RuntimeException("An unexpected error occurred while counting TODO items", e);
+    }
+  }
+
+  /**
+   * Get all TodoItems sorted by the sort orders, then by ID, ordered in the database
+   */
+  @Transactional(readOnly = true)
+  public List<TodoItem> findAllSorted(List<TodoSortOrder> sortOrders) {
+    try {
+      if (sortOrders == null) {
+        throw new IllegalArgumentException("Sort orders cannot be null");
+      }
+
+      return recordRows("findAllSorted", store.findAllSorted(currentUser.getId(), sortOrders, -1));
+    } catch (IllegalArgumentException e) {
+      logger.warn("Validation error while sorting TodoItems: {}", e.getMessage());
+      throw e;
+    } catch (DataAccessException e) {
+      logger.error("Database error while fetching and sorting TodoItems", e);
+      throw new RuntimeException("Failed to retrieve and sort TODO items from database", e);
+    } catch (Exception e) {
+      logger.error("Unexpected error while fetching and sorting TodoItems", e);
+      throw new RuntimeException("An unexpected error occurred while sorting TODO items", e);
+    }
+  }
+
+  /**
+   * Get the first n TodoItems sorted by the sort orders, then by ID. Only n rows are read into memory, and the
+   * default due date and priority order is read from an index without sorting the table.
+   */
+  @Transactional(readOnly = true)
+  public List<TodoItem> findTopN(List<TodoSortOrder> sortOrders, int n) {
+    try {
+      if (sortOrders == null) {
+        throw new IllegalArgumentException("Sort orders cannot be null");
+      }
+      if (n < 0) {
+        throw new IllegalArgumentException("N must not be negative");
+      }
+      if (n == 0) {
+        return List.of();
+      }
+
+      return recordRows("findTopN", store.findAllSorted(currentUser.getId(), sortOrders, n));
+    } catch (IllegalArgumentException e) {
+      logger.warn("Validation error while fetching the top TodoItems: {}", e.getMessage());
+      throw e;
+    } catch (DataAccessException e) {
+      logger.error("Database error while fetching the top {} TodoItems", n, e);
+      throw new RuntimeException("Failed to retrieve TODO items from database", e);
+    } catch (Exception e) {
+      logger.error("Unexpected error while fetching the top {} TodoItems", n, e);
+      throw new RuntimeException("An unexpected error occurred while retrieving TODO items", e);
+    }
+  }
+
+  /**
+   * Get all TodoItems with custom sorting. Loads and sorts the whole table in memory.
+   *
+   * @deprecated use {@link #findAllSorted(List)} or {@link #findTopN(List, int)}, which sort in the database
+   */
+  @Deprecated
+  @Transactional(readOnly = true)
   public List<TodoItem> findAllSorted(Comparator<TodoItem> comparator) {
     try {
       if (comparator == null) {
         throw new IllegalArgumentException("Comparator cannot be null");
       }
 
-      return repository.findAll().stream()
+      return recordRows("findAllSorted", store.findByOwnerId(currentUser.getId()).stream()
           .sorted(comparator)
-          .collect(Collectors.toList());
+          .collect(Collectors.toList()));
     } catch (IllegalArgumentException e) {
       logger.warn("Validation error while sorting TodoItems: {}", e.getMessage());
       throw e;
@@ -191,12 +711,13 @@ public class TodoItemService {
   /**
    * Find a TodoItem by ID
    */
+  @Transactional(readOnly = true)
   public Optional<TodoItem> findById(Long id) {
     try {
       if (id == null) {
         throw new IllegalArgumentException("ID cannot be null");
       }
-      return repository.findById(id);
+      return store.findByIdAndOwnerId(id, currentUser.getId());
     } catch (IllegalArgumentException e) {
       logger.warn("Validation error while finding TodoItem by ID: {}", e.getMessage());
       throw e;
@@ -208,4 +729,112 @@ public class TodoItemService {
       throw new RuntimeException("An unexpected error occurred while retrieving TODO item", e);
     }
   }
+
+  /**
+   * Find the grid row of a TodoItem by ID, without loading the entity
+   */
+  @Transactional(readOnly = true)
+  public Optional<TodoItemRow> findRowById(Long id) {
+    try {
+      if (id == null) {
+        throw new IllegalArgumentException("ID cannot be null");
+      }
+      return store.findRowByIdAndOwnerId(id, currentUser.getId());
+    } catch (IllegalArgumentException e) {
+      logger.warn("Validation error while finding TodoItem row by ID: {}", e.getMessage());
+      throw e;
+    } catch (DataAccessException e) {
+      logger.error("Database error while finding TodoItem row with ID: {}", id, e);
+      throw new RuntimeException("Failed to retrieve TODO item from database", e);
+    } catch (Exception e) {
+      logger.error("Unexpected error while finding TodoItem row with ID: {}", id, e);
+      throw new RuntimeException("An unexpected error occurred while retrieving TODO item", e);
+    }
+  }
+
+  /**
+   * Validate a TodoItem before saving, defaulting the status if not set. The result is reused between items.
+   */
+  private void validate(TodoItem item, TodoItemValidator.Result result) {
+    if (item == null) {
+      throw new IllegalArgumentException("TodoItem cannot be null");
+    }
+    if (!TodoItemValidator.validate(item, result).isValid()) {
+      throw new IllegalArgumentException(result.describe());
+    }
+
+    // Set default status if null
+    if (item.getStatus() == null) {
+      item.setStatus(TodoStatus.TODO);
+    }
+  }
+
+  /**
+   * The stored status and due date of an item before it is saved
+   */
+  private record StoredState(TodoStatus status, LocalDate dueDate) {
+
+    static StoredState of(TodoItem item) {
+      return new StoredState(item.getStatus(), item.getDueDate());
+    }
+  }
+
+  private static Change changeOf(StoredState previous, TodoItem saved) {
+    return previous == null
+        ? Change.created(saved)
+        : Change.updated(saved, previous.status(), previous.dueDate());
+  }
+
+  /**
+   * Publish changes to listeners, which receive them once the transaction commits
+   */
+  private void publishChanges(String ownerId, List<Change> changes) {
+    if (!changes.isEmpty()) {
+      eventPublisher.publishEvent(new TodoItemChangedEvent(ownerId, changes));
+    }
+  }
+
+  /**
+   * Record the number of rows a query returned, per service method
+   */
+  private <T> List<T> recordRows(String method, List<T> rows) {
+    DistributionSummary.builder("todo.service.rows")
+        .description("Rows returned by TodoItemService queries")
+        .tag("method", method)
+        .register(meterRegistry)
+        .record(rows.size());
+    return rows;
+  }
+
+  private static Map<Long, Map<String, Integer>> termWeightsById(List<TodoItem> items) {
+    Map<Long, Map<String, Integer>> termWeights = new HashMap<>();
+    for (TodoItem item : items) {
+      termWeights.put(item.getId(), TodoItemSearchIndex.termWeights(item));
+    }
+    return termWeights;
+  }
+
+  private void validateIds(Collection<Long> ids) {
+    if (ids == null) {
+      throw new IllegalArgumentException("IDs cannot be null");
+    }
+    // Immutable collections throw on contains(null), so check each element instead
+    for (Long id : ids) {
+      if (id == null) {
+        throw new IllegalArgumentException("IDs cannot contain null");
+      }
+    }
+  }
+
+  /**
+   * Split IDs into chunks so bulk statements stay within database bind parameter limits
+   */
+  private List<List<Long>> chunks(Collection<Long> ids) {
+    List<Long> idList = List.copyOf(ids);
+    List<List<Long>> chunks = new ArrayList<>();
+    for (int from = 0; from < idList.size(); from += BULK_CHUNK_SIZE) {
+      chunks.add(idList.subList(from, Math.min(from + BULK_CHUNK_SIZE, idList.size())));
+    }
+    return chunks;
+  }
 }
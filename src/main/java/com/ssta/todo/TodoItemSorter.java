@@ -0,0 +1,120 @@
+package com.ssta.todo;
+
+import org.springframework.data.domain.Sort;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Sorts TodoItems in memory in the same order as the database, see {@link TodoSortOrder}.
+ * <p>
+ * Status, priority and due date fit in a few bits each, so the leading sort orders on them are packed into one long
+ * per item, computed once per sort, with the item's position in the low 32 bits. Sorting those longs orders the
+ * items without calling a comparator. Only items with equal keys are then compared on the remaining sort orders
+ * (from the first description onwards) and finally by ID, as the database does.
+ */
+public final class TodoItemSorter {
+
+  // Value bits per field, each preceded by a null bit, so three fields take at most 31 bits
+  private static final int STATUS_BITS = 2;
+  private static final int PRIORITY_BITS = 3;
+  private static final int DUE_DATE_BITS = 23;
+  // Dates from year 0 up to about year 22900 keep their order; dates outside that range are clamped
+  private static final long MIN_EPOCH_DAY = LocalDate.of(0, 1, 1).toEpochDay();
+  private static final Comparator<TodoItem> BY_ID =
+      Comparator.comparing(TodoItem::getId, Comparator.nullsLast(Comparator.naturalOrder()));
+
+  private TodoItemSorter() {
+  }
+
+  /**
+   * Return the items sorted by the sort orders, then by ID
+   */
+  public static List<TodoItem> sort(Collection<TodoItem> items, List<TodoSortOrder> sortOrders) {
+    TodoItem[] source = items.toArray(new TodoItem[0]);
+    List<TodoSortOrder> packed = packedPrefix(sortOrders);
+    Comparator<TodoItem> tieBreak = tieBreak(sortOrders.subList(packed.size(), sortOrders.size()));
+
+    long[] keys = new long[source.length];
+    for (int i = 0; i < source.length; i++) {
+      keys[i] = (key(source[i], packed) << Integer.SIZE) | i;
+    }
+    Arrays.sort(keys);
+
+    List<TodoItem> sorted = new ArrayList<>(source.length);
+    for (long key : keys) {
+      sorted.add(source[(int) key]);
+    }
+
+    // Sort each run of equal keys on the rest of the ordering
+    int runStart = 0;
+    for (int i = 1; i <= keys.length; i++) {
+      if (i == keys.length || keys[i] >>> Integer.SIZE != keys[runStart] >>> Integer.SIZE) {
+        if (i - runStart > 1) {
+          sorted.subList(runStart, i).sort(tieBreak);
+        }
+        runStart = i;
+      }
+    }
+    return sorted;
+  }
+
+  /**
+   * The leading sort orders that can be packed into the key: up to the first description, each field once
+   */
+  private static List<TodoSortOrder> packedPrefix(List<TodoSortOrder> sortOrders) {
+    Set<TodoSortField> seen = EnumSet.noneOf(TodoSortField.class);
+    int length = 0;
+    for (TodoSortOrder sortOrder : sortOrders) {
+      if (sortOrder.field() == TodoSortField.DESCRIPTION || !seen.add(sortOrder.field())) {
+        break;
+      }
+      length++;
+    }
+    return sortOrders.subList(0, length);
+  }
+
+  private static Comparator<TodoItem> tieBreak(List<TodoSortOrder> sortOrders) {
+    Comparator<TodoItem> comparator = null;
+    for (TodoSortOrder sortOrder : sortOrders) {
+      Comparator<TodoItem> fieldComparator = TodoItemComparators.of(sortOrder);
+      comparator = comparator == null ? fieldComparator : comparator.thenComparing(fieldComparator);
+    }
+    return comparator == null ? BY_ID : comparator.thenComparing(BY_ID);
+  }
+
+  /**
+   * Pack the fields into an unsigned key of at most 31 bits. Each field starts with a bit placing nulls first or
+   * last as the sort order asks, followed by the value, inverted when descending.
+   */
+  private static long key(TodoItem item, List<TodoSortOrder> sortOrders) {
+    long key = 0;
+    for (TodoSortOrder sortOrder : sortOrders) {
+      int bits = switch (sortOrder.field()) {
+        case STATUS -> STATUS_BITS;
+        case PRIORITY -> PRIORITY_BITS;
+        case DUE_DATE -> DUE_DATE_BITS;
+        case DESCRIPTION -> throw new IllegalStateException("Descriptions cannot be packed");
+      };
+      long max = (1L << bits) - 1;
+      Long value = switch (sortOrder.field()) {
+        case STATUS -> item.getStatus() == null ? null : (long) item.getStatus().ordinal();
+        case PRIORITY -> item.getPriority() == null ? null : Math.clamp(item.getPriority(), 0, max);
+        case DUE_DATE -> item.getDueDate() == null ? null
+            : Math.clamp(item.getDueDate().toEpochDay() - MIN_EPOCH_DAY, 0, max);
+        case DESCRIPTION -> throw new IllegalStateException("Descriptions cannot be packed");
+      };
+
+      long nullBit = (value == null) != sortOrder.isNullsFirst() ? 1 : 0;
+      long fieldKey = value == null ? 0 : sortOrder.direction() == Sort.Direction.DESC ? max - value : value;
+      key = (((key << 1) | nullBit) << bits) | fieldKey;
+    }
+    return key;
+  }
+}
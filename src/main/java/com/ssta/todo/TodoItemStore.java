@@ -0,0 +1,175 @@
+package com.ssta.todo;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Where {@link TodoItemService} keeps TodoItems, chosen with todo.store: jpa, the default, stores them in the
+ * database through {@link TodoItemRepository}, and memory in {@link InMemoryTodoItemStore}.
+ * <p>
+ * Queries only see the TodoItems of one owner unless they say otherwise. Every call is made within one of the
+ * service's transactions, and items returned must not be changed within it unless they are then saved: the memory
+ * store returns copies, whose changes are ignored until saved, but the database store returns managed entities,
+ * whose changes are written when the transaction commits even without a save.
+ */
+public interface TodoItemStore {
+
+  /**
+   * The ID, status, due date and version of a TodoItem, without loading the item
+   */
+  interface StatusAndDueDate {
+    Long getId();
+
+    TodoStatus getStatus();
+
+    LocalDate getDueDate();
+
+    Long getVersion();
+  }
+
+  /**
+   * The number of TodoItems a user has with a status and due date
+   */
+  interface StatusAndDueDateCount {
+    String getOwnerId();
+
+    TodoStatus getStatus();
+
+    LocalDate getDueDate();
+
+    long getCount();
+  }
+
+  Optional<TodoItem> findByIdAndOwnerId(Long id, String ownerId);
+
+  Optional<TodoItemRow> findRowByIdAndOwnerId(Long id, String ownerId);
+
+  /**
+   * Find a user's TodoItems by ID, ignoring IDs of other users' items
+   */
+  List<TodoItem> findByOwnerIdAndIdIn(String ownerId, Collection<Long> ids);
+
+  /**
+   * Find TodoItems of any owner by ID
+   */
+  List<TodoItem> findAllById(Collection<Long> ids);
+
+  List<TodoItem> findByOwnerId(String ownerId);
+
+  List<TodoItem> findByOwnerIdAndStatusIn(String ownerId, List<TodoStatus> statuses);
+
+  long countByOwnerIdAndStatusIn(String ownerId, Collection<TodoStatus> statuses);
+
+  /**
+   * Count the TodoItems of every owner by status and due date
+   */
+  List<StatusAndDueDateCount> countByOwnerStatusAndDueDate();
+
+  /**
+   * Find up to limit TodoItems changed at or after the given time, oldest change first
+   */
+  List<TodoItem> findUpdatedSince(String ownerId, LocalDateTime since, int limit);
+
+  /**
+   * Find one page of TodoItems by multiple statuses, sorted by the sort orders, then by ID
+   */
+  List<TodoItem> findPage(String ownerId, Collection<TodoStatus> statuses, List<TodoSortOrder> sortOrders,
+                          int offset, int limit);
+
+  /**
+   * Find one page of grid rows by multiple statuses, ordered like {@link #findPage}
+   */
+  List<TodoItemRow> findRowPage(String ownerId, Collection<TodoStatus> statuses, List<TodoSortOrder> sortOrders,
+                                int offset, int limit);
+
+  /**
+   * Find up to limit TodoItems of any status, or all of them if limit is negative, sorted by the sort orders
+   */
+  List<TodoItem> findAllSorted(String ownerId, List<TodoSortOrder> sortOrders, int limit);
+
+  /**
+   * Find up to limit TodoItems by multiple statuses that come after the cursor, ordered by due date, priority and ID
+   * with nulls last. A null cursor starts from the beginning.
+   */
+  List<TodoItem> findPageAfter(String ownerId, Collection<TodoStatus> statuses, TodoItemCursor after, int limit);
+
+  /**
+   * Stream TodoItems by multiple statuses in ID order. Must be consumed and closed within a transaction.
+   */
+  Stream<TodoItem> streamByStatusIn(String ownerId, Collection<TodoStatus> statuses);
+
+  /**
+   * Find one page of TodoItems by multiple statuses that match every term of a search, best matches first: by the
+   * sum of the weights of the matching terms, then by ID
+   */
+  List<TodoItem> searchPage(String ownerId, Collection<TodoStatus> statuses, TodoItemSearchQuery query,
+                            int offset, int limit);
+
+  /**
+   * Find one page of grid rows by multiple statuses that match a search, ranked like {@link #searchPage}
+   */
+  List<TodoItemRow> searchRowPage(String ownerId, Collection<TodoStatus> statuses, TodoItemSearchQuery query,
+                                  int offset, int limit);
+
+  long countSearch(String ownerId, Collection<TodoStatus> statuses, TodoItemSearchQuery query);
+
+  Optional<StatusAndDueDate> findStatusAndDueDateByIdAndOwnerId(Long id, String ownerId);
+
+  /**
+   * Find and lock the status and due date of a user's TodoItem, so a following update or delete sees the same item
+   */
+  Optional<StatusAndDueDate> findStatusAndDueDateByIdAndOwnerIdForUpdate(Long id, String ownerId);
+
+  /**
+   * Find and lock the statuses and due dates of a user's TodoItems, so a following bulk update or delete sees the
+   * same items
+   */
+  List<StatusAndDueDate> findStatusesAndDueDatesByOwnerIdAndIdInForUpdate(String ownerId, Collection<Long> ids);
+
+  /**
+   * Create a TodoItem without an ID, or update one with an ID, returning it as saved with its new version. Fails
+   * with an {@link org.springframework.dao.OptimisticLockingFailureException} if its version is not the stored one.
+   */
+  TodoItem save(TodoItem item);
+
+  /**
+   * Save many TodoItems like {@link #save}, returning them as saved in the same order
+   */
+  List<TodoItem> saveAll(List<TodoItem> items);
+
+  /**
+   * Delete a user's TodoItems by ID, returning the number deleted
+   */
+  int deleteByOwnerIdAndIdIn(String ownerId, Collection<Long> ids);
+
+  /**
+   * Set the status of a user's TodoItems by ID, returning the number updated
+   */
+  int updateStatusByOwnerIdAndIdIn(String ownerId, Collection<Long> ids, TodoStatus status,
+                                   LocalDateTime updatedDate);
+
+  /**
+   * Advance the status of a user's TodoItem to {@link TodoStatus#next()}, returning the number updated
+   */
+  int cycleStatusByIdAndOwnerId(Long id, String ownerId, LocalDateTime updatedDate);
+
+  /**
+   * Replace the search terms of one owner's TodoItems, keyed by item ID
+   */
+  void replaceSearchTerms(String ownerId, Map<Long, Map<String, Integer>> termWeightsByItemId);
+
+  /**
+   * Remove TodoItems of any owner from the search index, returning the number of terms removed
+   */
+  int deleteSearchTerms(Collection<Long> itemIds);
+
+  /**
+   * Find up to limit IDs of TodoItems of any owner after afterId that have no search terms, in ID order
+   */
+  List<Long> findIdsMissingSearchTerms(long afterId, int limit);
+}
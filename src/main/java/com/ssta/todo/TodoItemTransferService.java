@@ -0,0 +1,265 @@
+package com.ssta.todo;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvParser;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.StringJoiner;
+
+/**
+ * Bulk import and export of TodoItems as CSV or JSON lines.
+ * <p>
+ * Both directions stream: exports write rows as they are read from the database, and imports parse, validate and
+ * save one chunk at a time, so memory use does not depend on the number of rows. Each chunk is saved in its own
+ * transaction with JDBC-batched inserts. Imported items are always created, taking new IDs and dates.
+ */
+@Service
+public class TodoItemTransferService {
+
+  private static final Logger logger = LoggerFactory.getLogger(TodoItemTransferService.class);
+  private static final int IMPORT_CHUNK_SIZE = 1000;
+  private static final int MAX_REPORTED_ERRORS = 100;
+
+  private final TodoItemService todoItemService;
+  private final ObjectMapper objectMapper;
+  private final CsvMapper csvMapper;
+  private final CsvSchema csvSchema;
+  private final byte[] csvHeader;
+
+  public TodoItemTransferService(TodoItemService todoItemService, ObjectMapper objectMapper) {
+    this.todoItemService = todoItemService;
+    this.objectMapper = objectMapper;
+    this.csvMapper = CsvMapper.builder()
+        .addModule(new JavaTimeModule())
+        .enable(CsvParser.Feature.EMPTY_STRING_AS_NULL)
+        .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+        .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+        .build();
+    this.csvSchema = CsvSchema.builder()
+        .addColumn("id", CsvSchema.ColumnType.NUMBER)
+        .addColumn("description")
+        .addColumn("detailedNotes")
+        .addColumn("status")
+        .addColumn("priority", CsvSchema.ColumnType.NUMBER)
+        .addColumn("dueDate")
+        .addColumn("createdDate")
+        .addColumn("updatedDate")
+        .addColumn("version", CsvSchema.ColumnType.NUMBER)
+        .build();
+    StringJoiner header = new StringJoiner(",", "", "\n");
+    csvSchema.forEach(column -> header.add(column.getName()));
+    this.csvHeader = header.toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  /**
+   * File formats for import and export
+   */
+  public enum Format {
+    CSV("text/csv"),
+    JSON_LINES("application/x-ndjson");
+
+    private final String mediaType;
+
+    Format(String mediaType) {
+      this.mediaType = mediaType;
+    }
+
+    public String getMediaType() {
+      return mediaType;
+    }
+
+    /**
+     * Parse a format name, accepting csv, jsonl and ndjson in any case
+     */
+    public static Optional<Format> fromName(String name) {
+      return switch (name.toLowerCase()) {
+        case "csv" -> Optional.of(CSV);
+        case "jsonl", "ndjson", "json_lines" -> Optional.of(JSON_LINES);
+        default -> Optional.empty();
+      };
+    }
+  }
+
+  /**
+   * Outcome of an import. Rows are numbered from 1, not counting a CSV header.
+   */
+  public record ImportResult(long imported, long rejected, List<String> errors, long durationMillis) {
+
+    @JsonProperty
+    public long rowsPerSecond() {
+      return TodoItemTransferService.rowsPerSecond(imported + rejected, durationMillis);
+    }
+  }
+
+  /**
+   * Outcome of an export
+   */
+  public record ExportResult(long exported, long durationMillis) {
+
+    @JsonProperty
+    public long rowsPerSecond() {
+      return TodoItemTransferService.rowsPerSecond(exported, durationMillis);
+    }
+  }
+
+  /**
+   * Write all TodoItems with the given statuses to the output in ID order
+   */
+  public ExportResult exportItems(OutputStream output, Format format, Collection<TodoStatus> statuses) {
+    try {
+      if (output == null || format == null) {
+        throw new IllegalArgumentException("Output and format cannot be null");
+      }
+
+      long start = System.nanoTime();
+      OutputStream out = new BufferedOutputStream(output);
+      ObjectWriter writer = switch (format) {
+        case CSV -> csvMapper.writerFor(TodoItemDto.class).with(csvSchema);
+        case JSON_LINES -> objectMapper.writerFor(TodoItemDto.class);
+      };
+      if (format == Format.CSV) {
+        out.write(csvHeader);
+      }
+
+      long exported = todoItemService.forEachByStatus(statuses, item -> {
+        try {
+          // Written as bytes, since writeValue(OutputStream) closes the stream afterwards
+          out.write(writer.writeValueAsBytes(TodoItemDto.from(item)));
+          if (format == Format.JSON_LINES) {
+            out.write('\n');
+          }
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+      out.flush();
+
+      ExportResult result = new ExportResult(exported, elapsedMillis(start));
+      logger.info("Exported {} TodoItems as {} in {} ms ({} rows/s)",
+          exported, format, result.durationMillis(), result.rowsPerSecond());
+      return result;
+    } catch (IllegalArgumentException e) {
+      logger.warn("Validation error while exporting TodoItems: {}", e.getMessage());
+      throw e;
+    } catch (IOException | UncheckedIOException e) {
+      logger.warn("Export of TodoItems was interrupted: {}", e.getMessage());
+      throw new RuntimeException("Failed to write TODO items export", e);
+    } catch (Exception e) {
+      logger.error("Unexpected error while exporting TodoItems", e);
+      throw new RuntimeException("An unexpected error occurred while exporting TODO items", e);
+    }
+  }
+
+  /**
+   * Create a TodoItem for each row of the input. Rows with invalid values are skipped and reported, and the rest are
+   * still imported. Input that cannot be parsed stops the import, keeping the chunks saved before it.
+   * CSV input must start with a header naming the columns, in any order.
+   */
+  public ImportResult importItems(InputStream input, Format format) {
+    try {
+      if (input == null || format == null) {
+        throw new IllegalArgumentException("Input and format cannot be null");
+      }
+
+      long start = System.nanoTime();
+      long row = 0;
+      long imported = 0;
+      long rejected = 0;
+      List<String> errors = new ArrayList<>();
+      List<TodoItem> chunk = new ArrayList<>(IMPORT_CHUNK_SIZE);
+      // Invalid rows are common in imports, so they are reported from the result rather than by exceptions
+      TodoItemValidator.Result validation = new TodoItemValidator.Result();
+
+      try (MappingIterator<TodoItemDto> rows = reader(format).readValues(input)) {
+        while (rows.hasNextValue()) {
+          row++;
+          TodoItem item = new TodoItem();
+          try {
+            // A mapping error skips the rest of the row, so the iterator can carry on with the next one
+            rows.nextValue().applyTo(item);
+            item.setVersion(null);
+          } catch (JsonMappingException e) {
+            rejected++;
+            reportError(errors, row, e.getOriginalMessage());
+            continue;
+          }
+          if (!TodoItemValidator.validate(item, validation).isValid()) {
+            rejected++;
+            reportError(errors, row, validation.describe());
+            continue;
+          }
+
+          chunk.add(item);
+          if (chunk.size() == IMPORT_CHUNK_SIZE) {
+            imported += todoItemService.saveAll(chunk).size();
+            chunk = new ArrayList<>(IMPORT_CHUNK_SIZE);
+          }
+        }
+      } catch (JsonProcessingException e) {
+        throw new IllegalArgumentException("Invalid " + format + " input near row " + row + ", " + imported
+            + " rows were imported before it: " + e.getOriginalMessage(), e);
+      }
+      if (!chunk.isEmpty()) {
+        imported += todoItemService.saveAll(chunk).size();
+      }
+
+      ImportResult result = new ImportResult(imported, rejected, List.copyOf(errors), elapsedMillis(start));
+      logger.info("Imported {} TodoItems from {} in {} ms ({} rows/s), rejected {}",
+          imported, format, result.durationMillis(), result.rowsPerSecond(), rejected);
+      return result;
+    } catch (IllegalArgumentException e) {
+      logger.warn("Validation error while importing TodoItems: {}", e.getMessage());
+      throw e;
+    } catch (IOException e) {
+      logger.warn("Import of TodoItems was interrupted: {}", e.getMessage());
+      throw new RuntimeException("Failed to read TODO items import", e);
+    } catch (Exception e) {
+      logger.error("Unexpected error while importing TodoItems", e);
+      throw new RuntimeException("An unexpected error occurred while importing TODO items", e);
+    }
+  }
+
+  private static void reportError(List<String> errors, long row, String message) {
+    if (errors.size() < MAX_REPORTED_ERRORS) {
+      errors.add("Row " + row + ": " + message);
+    }
+  }
+
+  private ObjectReader reader(Format format) {
+    return switch (format) {
+      case CSV -> csvMapper.readerFor(TodoItemDto.class).with(CsvSchema.emptySchema().withHeader());
+      case JSON_LINES -> objectMapper.readerFor(TodoItemDto.class);
+    };
+  }
+
+  private static long elapsedMillis(long startNanos) {
+    return (System.nanoTime() - startNanos) / 1_000_000;
+  }
+
+  private static long rowsPerSecond(long rows, long millis) {
+    return rows * 1000 / Math.max(millis, 1);
+  }
+}
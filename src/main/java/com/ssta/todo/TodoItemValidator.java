@@ -0,0 +1,129 @@
+package com.ssta.todo;
+
+import java.util.StringJoiner;
+
+/**
+ * The rules a TodoItem must meet to be saved, shared by the form, {@link TodoItemService} and the bulk import.
+ * <p>
+ * Checks return a constant message, or null when the value is valid, and whole items are checked into a
+ * {@link Result} the caller reuses, so validating a valid item allocates nothing and an invalid one doesn't need an
+ * exception. Callers decide whether a failure is an exception: saving throws, the import skips the row.
+ */
+public final class TodoItemValidator {
+
+  public static final int MAX_DESCRIPTION_LENGTH = 400;
+  public static final int MAX_NOTES_LENGTH = 400;
+  public static final int MIN_PRIORITY = 1;
+  public static final int MAX_PRIORITY = 5;
+
+  public static final String DESCRIPTION_REQUIRED = "Description is required";
+  public static final String DESCRIPTION_TOO_LONG =
+      "Description must not exceed " + MAX_DESCRIPTION_LENGTH + " characters";
+  public static final String NOTES_TOO_LONG = "Detailed notes must not exceed " + MAX_NOTES_LENGTH + " characters";
+  public static final String PRIORITY_OUT_OF_RANGE =
+      "Priority must be between " + MIN_PRIORITY + " and " + MAX_PRIORITY;
+
+  private TodoItemValidator() {
+  }
+
+  /**
+   * The fields a violation can be reported on
+   */
+  public enum Field {
+    DESCRIPTION,
+    DETAILED_NOTES,
+    PRIORITY
+  }
+
+  /**
+   * The violations found by one check, at most one per field. Cleared by every {@link #validate}, so one instance
+   * can check any number of items, but it must not be shared between threads.
+   */
+  public static final class Result {
+
+    private final Field[] fields = new Field[Field.values().length];
+    private final String[] messages = new String[Field.values().length];
+    private int count;
+
+    public boolean isValid() {
+      return count == 0;
+    }
+
+    public int violationCount() {
+      return count;
+    }
+
+    public Field field(int index) {
+      return fields[index];
+    }
+
+    public String message(int index) {
+      return messages[index];
+    }
+
+    /**
+     * The violation of a field, or null if it is valid
+     */
+    public String messageFor(Field field) {
+      for (int i = 0; i < count; i++) {
+        if (fields[i] == field) {
+          return messages[i];
+        }
+      }
+      return null;
+    }
+
+    /**
+     * All violations in one message, for reporting
+     */
+    public String describe() {
+      StringJoiner joiner = new StringJoiner("; ");
+      for (int i = 0; i < count; i++) {
+        joiner.add(messages[i]);
+      }
+      return joiner.toString();
+    }
+
+    private void clear() {
+      for (int i = 0; i < count; i++) {
+        fields[i] = null;
+        messages[i] = null;
+      }
+      count = 0;
+    }
+
+    private void add(Field field, String message) {
+      if (message != null) {
+        fields[count] = field;
+        messages[count] = message;
+        count++;
+      }
+    }
+  }
+
+  /**
+   * Check every field of an item into the result, replacing what it held, and return it
+   */
+  public static Result validate(TodoItem item, Result result) {
+    result.clear();
+    result.add(Field.DESCRIPTION, checkDescription(item.getDescription()));
+    result.add(Field.DETAILED_NOTES, checkDetailedNotes(item.getDetailedNotes()));
+    result.add(Field.PRIORITY, checkPriority(item.getPriority()));
+    return result;
+  }
+
+  public static String checkDescription(String description) {
+    if (description == null || description.isBlank()) {
+      return DESCRIPTION_REQUIRED;
+    }
+    return description.length() > MAX_DESCRIPTION_LENGTH ? DESCRIPTION_TOO_LONG : null;
+  }
+
+  public static String checkDetailedNotes(String detailedNotes) {
+    return detailedNotes != null && detailedNotes.length() > MAX_NOTES_LENGTH ? NOTES_TOO_LONG : null;
+  }
+
+  public static String checkPriority(Integer priority) {
+    return priority != null && (priority < MIN_PRIORITY || priority > MAX_PRIORITY) ? PRIORITY_OUT_OF_RANGE : null;
+  }
+}
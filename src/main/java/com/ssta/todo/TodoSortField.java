@@ -0,0 +1,36 @@
+package com.ssta.todo;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * Fields of a TodoItem that can be sorted in the database
+ */
+public enum TodoSortField {
+  STATUS("status"),
+  DESCRIPTION("description"),
+  PRIORITY("priority"),
+  DUE_DATE("dueDate");
+
+  private final String property;
+
+  TodoSortField(String property) {
+    this.property = property;
+  }
+
+  /**
+   * Returns the sort property used by Grid columns for this field
+   */
+  public String getProperty() {
+    return property;
+  }
+
+  /**
+   * Find the sort field for a Grid sort property
+   */
+  public static Optional<TodoSortField> fromProperty(String property) {
+    return Arrays.stream(values())
+        .filter(field -> field.property.equals(property))
+        .findFirst();
+  }
+}
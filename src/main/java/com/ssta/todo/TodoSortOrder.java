@@ -0,0 +1,51 @@
+package com.ssta.todo;
+
+import org.springframework.data.domain.Sort;
+
+/**
+ * A single sort criterion for TodoItem queries.
+ * <p>
+ * Ordering matches the Grid's in-memory comparators: status follows the enum order, description ignores case,
+ * and due date puts overdue items first, since overdue dates are exactly those before today. With
+ * {@link Sort.NullHandling#NATIVE} nulls follow the direction, last when ascending and first when descending;
+ * the other null handlings place them explicitly.
+ */
+public record TodoSortOrder(TodoSortField field, Sort.Direction direction, Sort.NullHandling nullHandling) {
+
+  public TodoSortOrder {
+    if (field == null || direction == null) {
+      throw new IllegalArgumentException("Sort field and direction cannot be null");
+    }
+    if (nullHandling == null) {
+      nullHandling = Sort.NullHandling.NATIVE;
+    }
+  }
+
+  public TodoSortOrder(TodoSortField field, Sort.Direction direction) {
+    this(field, direction, Sort.NullHandling.NATIVE);
+  }
+
+  public static TodoSortOrder asc(TodoSortField field) {
+    return new TodoSortOrder(field, Sort.Direction.ASC);
+  }
+
+  public static TodoSortOrder desc(TodoSortField field) {
+    return new TodoSortOrder(field, Sort.Direction.DESC);
+  }
+
+  public TodoSortOrder nullsFirst() {
+    return new TodoSortOrder(field, direction, Sort.NullHandling.NULLS_FIRST);
+  }
+
+  public TodoSortOrder nullsLast() {
+    return new TodoSortOrder(field, direction, Sort.NullHandling.NULLS_LAST);
+  }
+
+  /**
+   * Whether items without a value for the field come before the others
+   */
+  public boolean isNullsFirst() {
+    return nullHandling == Sort.NullHandling.NULLS_FIRST
+        || (nullHandling == Sort.NullHandling.NATIVE && direction == Sort.Direction.DESC);
+  }
+}
@@ -17,6 +17,8 @@ public enum TodoStatus {
 
   /**
    * Returns the next status in the cycle: TODO -> IN_PROGRESS -> COMPLETE -> TODO
+   * <p>
+   * Keep in sync with {@link TodoItemRepository#cycleStatusByIdAndOwnerId}, which applies the same cycle in SQL.
    */
   public TodoStatus next() {
     return switch (this) {
@@ -25,4 +27,15 @@ public enum TodoStatus {
       case COMPLETE -> TODO;
     };
   }
+
+  /**
+   * Returns the previous status in the cycle, so that previous().next() == this
+   */
+  public TodoStatus previous() {
+    return switch (this) {
+      case TODO -> COMPLETE;
+      case IN_PROGRESS -> TODO;
+      case COMPLETE -> IN_PROGRESS;
+    };
+  }
 }
@@ -2,15 +2,28 @@ package com.ssta.todo;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import org.hibernate.annotations.ColumnDefault;
 
 @Entity
-@Table(name = "user_preferences")
+@Table(name = "user_preferences", uniqueConstraints =
+    @UniqueConstraint(name = "uk_user_preferences_owner_id", columnNames = "owner_id"))
 public class UserPreferences {
 
   @Id
-  private Long id = 1L; // Fixed to 1 for single-user application
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_preferences_seq")
+  @SequenceGenerator(name = "user_preferences_seq", sequenceName = "user_preferences_seq", allocationSize = 1)
+  private Long id;
+
+  // The user these preferences belong to; the row from before preferences were per user is the default user's
+  @ColumnDefault("'" + CurrentUser.DEFAULT_USER + "'")
+  @Column(name = "owner_id", nullable = false, updatable = false, length = CurrentUser.MAX_LENGTH)
+  private String ownerId;
 
   @Column(nullable = false)
   private Boolean showTodo = true;
@@ -25,6 +38,14 @@ public class UserPreferences {
   public UserPreferences() {
   }
 
+  public UserPreferences(UserPreferences other) {
+    this.id = other.id;
+    this.ownerId = other.ownerId;
+    this.showTodo = other.showTodo;
+    this.showInProgress = other.showInProgress;
+    this.showComplete = other.showComplete;
+  }
+
   // Getters and Setters
   public Long getId() {
     return id;
@@ -34,6 +55,14 @@ public class UserPreferences {
     this.id = id;
   }
 
+  public String getOwnerId() {
+    return ownerId;
+  }
+
+  public void setOwnerId(String ownerId) {
+    this.ownerId = ownerId;
+  }
+
   public Boolean getShowTodo() {
     return showTodo;
   }
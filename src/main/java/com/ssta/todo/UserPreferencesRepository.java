@@ -2,7 +2,16 @@ package com.ssta.todo;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
 
 @Repository
 public interface UserPreferencesRepository extends JpaRepository<UserPreferences, Long> {
+
+  /**
+   * Find the preferences of a user, in a read-only transaction unless called within one
+   */
+  @Transactional(readOnly = true)
+  Optional<UserPreferences> findByOwnerId(String ownerId);
 }
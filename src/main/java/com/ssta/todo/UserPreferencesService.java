@@ -1,34 +1,82 @@
 package com.ssta.todo;
 
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
-import java.util.Optional;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledFuture;
 
+/**
+ * Keeps the preferences of each user in memory and writes changes behind to the database.
+ * <p>
+ * Rapid changes are coalesced: each update restarts a short delay, and only the latest preferences of each user
+ * are written once it expires, in one transaction on the task scheduler rather than the UI thread. Pending changes
+ * are flushed on shutdown. Each repository call runs in its own transaction, so the service itself is not
+ * transactional. Preferences are read or created on a user's first visit rather than at startup, so startup doesn't
+ * wait on the database for them.
+ */
 @Service
-@Transactional
+@Timed(value = "todo.preferences", description = "Latency of UserPreferencesService calls")
 public class UserPreferencesService {
 
   private static final Logger logger = LoggerFactory.getLogger(UserPreferencesService.class);
-  private static final Long PREFERENCES_ID = 1L;
 
   private final UserPreferencesRepository repository;
+  private final CurrentUser currentUser;
+  private final TaskScheduler taskScheduler;
+  private final Duration writeDelay;
+  private final Timer flushTimer;
+  private final Counter flushFailures;
 
-  public UserPreferencesService(UserPreferencesRepository repository) {
+  // Guarded by lock; keyed by user ID
+  private final Object lock = new Object();
+  private final Map<String, UserPreferences> cachedPreferences = new HashMap<>();
+  private final Set<String> dirtyOwners = new LinkedHashSet<>();
+  private ScheduledFuture<?> pendingFlush;
+
+  // Serializes writes so an older snapshot can never overwrite a newer one
+  private final Object flushLock = new Object();
+
+  public UserPreferencesService(UserPreferencesRepository repository, CurrentUser currentUser,
+                                TaskScheduler taskScheduler,
+                                @Value("${todo.preferences.write-delay:500ms}") Duration writeDelay,
+                                MeterRegistry meterRegistry) {
     this.repository = repository;
-    initializeDefaultPreferences();
+    this.currentUser = currentUser;
+    this.taskScheduler = taskScheduler;
+    this.writeDelay = writeDelay;
+    // Writes run on the scheduler rather than through the proxy, so they are timed here instead of by @Timed
+    this.flushTimer = Timer.builder("todo.preferences.flush")
+        .description("Time to write pending preference changes to the database")
+        .register(meterRegistry);
+    this.flushFailures = Counter.builder("todo.preferences.flush.failures")
+        .description("Preference writes that failed and were left pending")
+        .register(meterRegistry);
   }
 
   /**
-   * Get user preferences, creating default if not exists
+   * Get the current user's preferences, creating default ones if they have none
    */
   public UserPreferences getPreferences() {
     try {
-      Optional<UserPreferences> preferences = repository.findById(PREFERENCES_ID);
-      return preferences.orElseGet(this::createDefaultPreferences);
+      return new UserPreferences(preferencesOf(currentUser.getId()));
     } catch (DataAccessException e) {
       logger.error("Database error while fetching user preferences", e);
       throw new RuntimeException("Failed to retrieve user preferences from database", e);
@@ -39,7 +87,8 @@ public class UserPreferencesService {
   }
 
   /**
-   * Update user preferences
+   * Update the current user's preferences. The change is visible immediately and written to the database shortly
+   * after.
    */
   public UserPreferences updatePreferences(UserPreferences preferences) {
     try {
@@ -47,29 +96,35 @@ public class UserPreferencesService {
         throw new IllegalArgumentException("Preferences cannot be null");
       }
 
-      // Ensure ID is always 1
-      preferences.setId(PREFERENCES_ID);
+      String ownerId = currentUser.getId();
+      UserPreferences updatedPreferences = new UserPreferences(preferences);
+
+      // Always update the user's own stored row, whatever the caller passed
+      UserPreferences storedPreferences = preferencesOf(ownerId);
+      updatedPreferences.setId(storedPreferences.getId());
+      updatedPreferences.setOwnerId(ownerId);
 
       // Ensure boolean values are not null
-      if (preferences.getShowTodo() == null) {
-        preferences.setShowTodo(true);
+      if (updatedPreferences.getShowTodo() == null) {
+        updatedPreferences.setShowTodo(true);
       }
-      if (preferences.getShowInProgress() == null) {
-        preferences.setShowInProgress(true);
+      if (updatedPreferences.getShowInProgress() == null) {
+        updatedPreferences.setShowInProgress(true);
       }
-      if (preferences.getShowComplete() == null) {
-        preferences.setShowComplete(true);
+      if (updatedPreferences.getShowComplete() == null) {
+        updatedPreferences.setShowComplete(true);
       }
 
-      UserPreferences savedPreferences = repository.save(preferences);
-      logger.info("Successfully updated user preferences");
-      return savedPreferences;
+      synchronized (lock) {
+        cachedPreferences.put(ownerId, updatedPreferences);
+        dirtyOwners.add(ownerId);
+        scheduleFlush();
+      }
+      logger.debug("Updated preferences of {}, write to database pending", ownerId);
+      return new UserPreferences(updatedPreferences);
     } catch (IllegalArgumentException e) {
       logger.warn("Validation error while updating preferences: {}", e.getMessage());
       throw e;
-    } catch (DataAccessException e) {
-      logger.error("Database error while updating user preferences", e);
-      throw new RuntimeException("Failed to save user preferences to database", e);
     } catch (Exception e) {
       logger.error("Unexpected error while updating user preferences", e);
       throw new RuntimeException("An unexpected error occurred while saving user preferences", e);
@@ -77,37 +132,85 @@ public class UserPreferencesService {
   }
 
   /**
-   * Initialize default preferences on first run
+   * Write pending preference changes of every user to the database now
    */
-  private void initializeDefaultPreferences() {
-    try {
-      if (!repository.existsById(PREFERENCES_ID)) {
-        createDefaultPreferences();
+  @PreDestroy
+  public void flush() {
+    synchronized (flushLock) {
+      List<UserPreferences> preferencesToSave = new ArrayList<>();
+      synchronized (lock) {
+        if (pendingFlush != null) {
+          pendingFlush.cancel(false);
+          pendingFlush = null;
+        }
+        if (dirtyOwners.isEmpty()) {
+          return;
+        }
+        for (String ownerId : dirtyOwners) {
+          preferencesToSave.add(new UserPreferences(cachedPreferences.get(ownerId)));
+        }
+        dirtyOwners.clear();
       }
-    } catch (DataAccessException e) {
-      logger.error("Database error while initializing default preferences", e);
-      // Don't throw - allow application to start even if preferences initialization fails
-      logger.warn("Application started without initializing preferences - they will be created on first access");
-    } catch (Exception e) {
-      logger.error("Unexpected error while initializing default preferences", e);
-      // Don't throw - allow application to start
-      logger.warn("Application started without initializing preferences - they will be created on first access");
+
+      try {
+        flushTimer.record(() -> repository.saveAll(preferencesToSave));
+        logger.info("Successfully updated preferences of {} users", preferencesToSave.size());
+      } catch (Exception e) {
+        flushFailures.increment();
+        logger.error("Failed to write user preferences to database, will retry on the next change", e);
+        synchronized (lock) {
+          // A newer change made while writing is already marked dirty
+          preferencesToSave.forEach(preferences -> dirtyOwners.add(preferences.getOwnerId()));
+        }
+      }
+    }
+  }
+
+  /**
+   * The cached preferences of a user, reading or creating them on first use. The database is read outside the
+   * lock, so one user's first visit doesn't hold up everyone else's preference changes.
+   */
+  private UserPreferences preferencesOf(String ownerId) {
+    synchronized (lock) {
+      UserPreferences cached = cachedPreferences.get(ownerId);
+      if (cached != null) {
+        return cached;
+      }
+    }
+
+    UserPreferences loaded = repository.findByOwnerId(ownerId).orElseGet(() -> createDefaultPreferences(ownerId));
+    synchronized (lock) {
+      // Keep the copy of a concurrent first visit if it was cached first, as it may already have been changed
+      return cachedPreferences.computeIfAbsent(ownerId, id -> loaded);
+    }
+  }
+
+  /**
+   * Restart the write delay, so a burst of changes results in a single write. Caller must hold lock.
+   */
+  private void scheduleFlush() {
+    if (pendingFlush != null) {
+      pendingFlush.cancel(false);
     }
+    pendingFlush = taskScheduler.schedule(this::flush, Instant.now().plus(writeDelay));
   }
 
   /**
-   * Create and save default preferences
+   * Create and save default preferences for a user
    */
-  private UserPreferences createDefaultPreferences() {
+  private UserPreferences createDefaultPreferences(String ownerId) {
     try {
       UserPreferences preferences = new UserPreferences();
-      preferences.setId(PREFERENCES_ID);
+      preferences.setOwnerId(ownerId);
       preferences.setShowTodo(true);
       preferences.setShowInProgress(true);
       preferences.setShowComplete(true);
       UserPreferences savedPreferences = repository.save(preferences);
-      logger.info("Created default user preferences");
+      logger.info("Created default preferences for {}", ownerId);
       return savedPreferences;
+    } catch (DataIntegrityViolationException e) {
+      // Another session of the same user created them first
+      return repository.findByOwnerId(ownerId).orElseThrow(() -> e);
     } catch (DataAccessException e) {
       logger.error("Database error while creating default preferences", e);
       throw new RuntimeException("Failed to create default preferences in database", e);
@@ -0,0 +1,62 @@
+-- Baseline schema. Databases created before migrations, when Hibernate updated the schema on startup, are adopted:
+-- Flyway baselines them at version 0 and runs this script, which only adds what they are missing.
+
+-- TodoItem IDs come from a sequence in blocks of 50, so inserts can be JDBC-batched
+CREATE SEQUENCE IF NOT EXISTS todo_items_seq START WITH 1 INCREMENT BY 50;
+CREATE TABLE IF NOT EXISTS todo_items (
+    id BIGINT NOT NULL,
+    owner_id VARCHAR(100) DEFAULT 'default' NOT NULL,
+    description VARCHAR(400) NOT NULL,
+    detailed_notes VARCHAR(400),
+    status VARCHAR(255) NOT NULL CHECK (status IN ('TODO', 'IN_PROGRESS', 'COMPLETE')),
+    priority INTEGER CHECK (priority BETWEEN 1 AND 5),
+    due_date DATE,
+    created_date TIMESTAMP(6) NOT NULL,
+    updated_date TIMESTAMP(6) NOT NULL,
+    version BIGINT DEFAULT 0 NOT NULL,
+    PRIMARY KEY (id)
+);
+-- Items from before optimistic locking and users existed
+ALTER TABLE todo_items ADD COLUMN IF NOT EXISTS version BIGINT DEFAULT 0 NOT NULL;
+ALTER TABLE todo_items ADD COLUMN IF NOT EXISTS owner_id VARCHAR(100) DEFAULT 'default' NOT NULL;
+-- TodoItem IDs used to come from an identity column; move the sequence past any existing rows
+ALTER SEQUENCE todo_items_seq RESTART WITH (SELECT COALESCE(MAX(id), 0) + 1 FROM todo_items);
+
+-- Every query is scoped to one owner, so owner_id leads. The first index serves status filters and counts with the
+-- default grid ordering; the last serves a user's due date and priority ordering across all statuses, nulls last as
+-- the application orders them, so top-N queries read the first rows of the user's range instead of sorting.
+DROP INDEX IF EXISTS idx_todo_items_status_due_date_priority;
+DROP INDEX IF EXISTS idx_todo_items_updated_date;
+DROP INDEX IF EXISTS idx_todo_items_due_date_priority;
+CREATE INDEX IF NOT EXISTS idx_todo_items_owner_status_due_date ON todo_items (owner_id, status, due_date, priority);
+CREATE INDEX IF NOT EXISTS idx_todo_items_owner_updated_date ON todo_items (owner_id, updated_date);
+CREATE INDEX IF NOT EXISTS idx_todo_items_owner_due_date_priority
+    ON todo_items (owner_id, due_date NULLS LAST, priority NULLS LAST, id);
+
+CREATE SEQUENCE IF NOT EXISTS user_preferences_seq START WITH 1 INCREMENT BY 1;
+CREATE TABLE IF NOT EXISTS user_preferences (
+    id BIGINT NOT NULL,
+    owner_id VARCHAR(100) DEFAULT 'default' NOT NULL,
+    show_todo BOOLEAN NOT NULL,
+    show_in_progress BOOLEAN NOT NULL,
+    show_complete BOOLEAN NOT NULL,
+    PRIMARY KEY (id)
+);
+ALTER TABLE user_preferences ADD COLUMN IF NOT EXISTS owner_id VARCHAR(100) DEFAULT 'default' NOT NULL;
+ALTER TABLE user_preferences ADD CONSTRAINT IF NOT EXISTS uk_user_preferences_owner_id UNIQUE (owner_id);
+-- User preferences used to have the fixed ID 1; move their sequence past it
+ALTER SEQUENCE user_preferences_seq RESTART WITH (SELECT COALESCE(MAX(id), 0) + 1 FROM user_preferences);
+
+-- Full-text search index over TodoItem descriptions and detailed notes, maintained by TodoItemService.
+-- The owner index serves exact and prefix term lookups within one user's items; item_id serves reindexing and deletes.
+CREATE TABLE IF NOT EXISTS todo_item_terms (
+    term VARCHAR(64) NOT NULL,
+    item_id BIGINT NOT NULL,
+    weight INT NOT NULL,
+    owner_id VARCHAR(100) DEFAULT 'default' NOT NULL,
+    PRIMARY KEY (term, item_id)
+);
+-- Terms indexed before items had owners all belong to the default user
+ALTER TABLE todo_item_terms ADD COLUMN IF NOT EXISTS owner_id VARCHAR(100) DEFAULT 'default' NOT NULL;
+CREATE INDEX IF NOT EXISTS idx_todo_item_terms_owner_term ON todo_item_terms (owner_id, term, item_id);
+CREATE INDEX IF NOT EXISTS idx_todo_item_terms_item_id ON todo_item_terms (item_id);
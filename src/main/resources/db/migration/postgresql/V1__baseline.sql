@@ -0,0 +1,49 @@
+-- Baseline schema, matching the H2 schema of db/migration/h2
+
+-- TodoItem IDs come from a sequence in blocks of 50, so inserts can be JDBC-batched
+CREATE SEQUENCE todo_items_seq START WITH 1 INCREMENT BY 50;
+CREATE TABLE todo_items (
+    id BIGINT NOT NULL,
+    owner_id VARCHAR(100) DEFAULT 'default' NOT NULL,
+    description VARCHAR(400) NOT NULL,
+    detailed_notes VARCHAR(400),
+    status VARCHAR(255) NOT NULL CHECK (status IN ('TODO', 'IN_PROGRESS', 'COMPLETE')),
+    priority INTEGER CHECK (priority BETWEEN 1 AND 5),
+    due_date DATE,
+    created_date TIMESTAMP(6) NOT NULL,
+    updated_date TIMESTAMP(6) NOT NULL,
+    version BIGINT DEFAULT 0 NOT NULL,
+    PRIMARY KEY (id)
+);
+
+-- Every query is scoped to one owner, so owner_id leads. The first index serves status filters and counts with the
+-- default grid ordering; the last serves a user's due date and priority ordering across all statuses, so top-N
+-- queries read the first rows of the user's range instead of sorting.
+CREATE INDEX idx_todo_items_owner_status_due_date ON todo_items (owner_id, status, due_date, priority);
+CREATE INDEX idx_todo_items_owner_updated_date ON todo_items (owner_id, updated_date);
+CREATE INDEX idx_todo_items_owner_due_date_priority
+    ON todo_items (owner_id, due_date NULLS LAST, priority NULLS LAST, id);
+
+CREATE SEQUENCE user_preferences_seq START WITH 1 INCREMENT BY 1;
+CREATE TABLE user_preferences (
+    id BIGINT NOT NULL,
+    owner_id VARCHAR(100) DEFAULT 'default' NOT NULL,
+    show_todo BOOLEAN NOT NULL,
+    show_in_progress BOOLEAN NOT NULL,
+    show_complete BOOLEAN NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_user_preferences_owner_id UNIQUE (owner_id)
+);
+
+-- Full-text search index over TodoItem descriptions and detailed notes, maintained by TodoItemService.
+-- The owner index serves exact and prefix term lookups within one user's items; varchar_pattern_ops lets prefix
+-- LIKE queries use it whatever the database collation. item_id serves reindexing and deletes.
+CREATE TABLE todo_item_terms (
+    term VARCHAR(64) NOT NULL,
+    item_id BIGINT NOT NULL,
+    weight INT NOT NULL,
+    owner_id VARCHAR(100) DEFAULT 'default' NOT NULL,
+    PRIMARY KEY (term, item_id)
+);
+CREATE INDEX idx_todo_item_terms_owner_term ON todo_item_terms (owner_id, term varchar_pattern_ops, item_id);
+CREATE INDEX idx_todo_item_terms_item_id ON todo_item_terms (item_id);
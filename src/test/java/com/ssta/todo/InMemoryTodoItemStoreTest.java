@@ -0,0 +1,135 @@
+package com.ssta.todo;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InMemoryTodoItemStoreTest {
+
+  private static final String OWNER = "owner";
+
+  @TempDir
+  Path directory;
+
+  private final List<InMemoryTodoItemStore> stores = new ArrayList<>();
+
+  @AfterEach
+  void closeStores() throws IOException {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+    for (InMemoryTodoItemStore store : stores) {
+      store.close();
+    }
+  }
+
+  @Test
+  void recoversFromTheSnapshotAndTheLogWrittenAfterIt() throws IOException {
+    InMemoryTodoItemStore store = open();
+    TodoItem kept = store.save(item("Kept", LocalDate.of(2030, 1, 1)));
+    TodoItem changed = store.save(item("Changed", null));
+    TodoItem deleted = store.save(item("Deleted", null));
+    store.snapshot();
+
+    TodoItem update = store.findByIdAndOwnerId(changed.getId(), OWNER).orElseThrow();
+    update.setDescription("Changed after the snapshot");
+    store.save(update);
+    store.deleteByOwnerIdAndIdIn(OWNER, List.of(deleted.getId()));
+    store.cycleStatusByIdAndOwnerId(kept.getId(), OWNER, LocalDateTime.now());
+    TodoItem added = store.save(item("Added after the snapshot", null));
+    assertThat(logFiles()).isNotEmpty();
+
+    // Opened without closing the first store, as after a crash, so the changes since the snapshot come from the log
+    InMemoryTodoItemStore recovered = open();
+    assertThat(recovered.findByOwnerId(OWNER))
+        .extracting(TodoItem::getId)
+        .containsExactlyInAnyOrder(kept.getId(), changed.getId(), added.getId());
+    TodoItem recoveredKept = recovered.findByIdAndOwnerId(kept.getId(), OWNER).orElseThrow();
+    assertThat(recoveredKept.getStatus()).isEqualTo(TodoStatus.IN_PROGRESS);
+    assertThat(recoveredKept.getDueDate()).isEqualTo(LocalDate.of(2030, 1, 1));
+    assertThat(recoveredKept.getVersion()).isEqualTo(1L);
+    assertThat(recovered.findByIdAndOwnerId(changed.getId(), OWNER).orElseThrow().getDescription())
+        .isEqualTo("Changed after the snapshot");
+
+    // IDs continue after the highest recovered one
+    assertThat(recovered.save(item("New", null)).getId()).isGreaterThan(added.getId());
+  }
+
+  @Test
+  void rollbackPutsBackTheStateFromBeforeTheTransaction() {
+    InMemoryTodoItemStore store = open();
+    TodoItem existing = store.save(item("Existing", null));
+
+    TransactionSynchronizationManager.initSynchronization();
+    TodoItem update = store.findByIdAndOwnerId(existing.getId(), OWNER).orElseThrow();
+    update.setDescription("Rolled back");
+    store.save(update);
+    TodoItem added = store.save(item("Added", null));
+    store.updateStatusByOwnerIdAndIdIn(OWNER, List.of(existing.getId()), TodoStatus.COMPLETE, LocalDateTime.now());
+    complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+    TodoItem restored = store.findByIdAndOwnerId(existing.getId(), OWNER).orElseThrow();
+    assertThat(restored.getDescription()).isEqualTo("Existing");
+    assertThat(restored.getStatus()).isEqualTo(TodoStatus.TODO);
+    assertThat(restored.getVersion()).isEqualTo(existing.getVersion());
+    assertThat(store.findByIdAndOwnerId(added.getId(), OWNER)).isEmpty();
+    assertThat(store.countByOwnerIdAndStatusIn(OWNER, List.of(TodoStatus.COMPLETE))).isZero();
+
+    // Nothing of the rolled back transaction was logged
+    assertThat(open().findByOwnerId(OWNER)).extracting(TodoItem::getDescription).containsExactly("Existing");
+  }
+
+  @Test
+  void commitKeepsTheChangesAndLogsThem() {
+    InMemoryTodoItemStore store = open();
+
+    TransactionSynchronizationManager.initSynchronization();
+    TodoItem added = store.save(item("Committed", null));
+    complete(TransactionSynchronization.STATUS_COMMITTED);
+
+    assertThat(store.findByIdAndOwnerId(added.getId(), OWNER)).isPresent();
+    assertThat(open().findByIdAndOwnerId(added.getId(), OWNER)).isPresent();
+  }
+
+  private InMemoryTodoItemStore open() {
+    InMemoryTodoItemStore store = new InMemoryTodoItemStore(directory, false);
+    stores.add(store);
+    return store;
+  }
+
+  /**
+   * Complete the transaction begun with initSynchronization, as the transaction manager would
+   */
+  private static void complete(int status) {
+    List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+    TransactionSynchronizationManager.clearSynchronization();
+    synchronizations.forEach(synchronization -> synchronization.afterCompletion(status));
+  }
+
+  private static TodoItem item(String description, LocalDate dueDate) {
+    TodoItem item = new TodoItem(description);
+    item.setOwnerId(OWNER);
+    item.setPriority(2);
+    item.setDueDate(dueDate);
+    return item;
+  }
+
+  private List<Path> logFiles() throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files.filter(path -> path.getFileName().toString().endsWith(".log")).toList();
+    }
+  }
+}
@@ -0,0 +1,96 @@
+package com.ssta.todo;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LongHashMapTest {
+
+  // The initial table size, in which the colliding keys below share a home slot
+  private static final int TABLE_SIZE = 8;
+
+  @Test
+  void removeKeepsCollidingKeysReachable() {
+    List<Long> colliding = keysWithHome(homeOf(1), 4);
+    for (int removed = 0; removed < colliding.size(); removed++) {
+      LongHashMap<String> map = new LongHashMap<>();
+      colliding.forEach(key -> map.put(key, "value " + key));
+
+      long key = colliding.get(removed);
+      assertThat(map.remove(key)).isEqualTo("value " + key);
+      assertThat(map.containsKey(key)).isFalse();
+      assertThat(map.size()).isEqualTo(colliding.size() - 1);
+      for (long other : colliding) {
+        if (other != key) {
+          assertThat(map.get(other)).isEqualTo("value " + other);
+        }
+      }
+    }
+  }
+
+  @Test
+  void removeKeepsKeysReachableWhenProbeSequencesWrapAround() {
+    List<Long> keys = new ArrayList<>(keysWithHome(TABLE_SIZE - 1, 3));
+    keys.addAll(keysWithHome(0, 1));
+    LongHashMap<Long> map = new LongHashMap<>();
+    keys.forEach(key -> map.put(key, key));
+
+    map.remove(keys.get(0));
+    for (long key : keys.subList(1, keys.size())) {
+      assertThat(map.get(key)).isEqualTo(key);
+    }
+  }
+
+  @Test
+  void matchesAHashMapThroughPutsAndRemoves() {
+    LongHashMap<Long> map = new LongHashMap<>();
+    Map<Long, Long> expected = new HashMap<>();
+    Random random = new Random(42);
+    for (int i = 0; i < 100_000; i++) {
+      long key = 1 + random.nextInt(2_000);
+      if (random.nextBoolean()) {
+        assertThat(map.put(key, (long) i)).isEqualTo(expected.put(key, (long) i));
+      } else {
+        assertThat(map.remove(key)).isEqualTo(expected.remove(key));
+      }
+    }
+
+    assertThat(map.size()).isEqualTo(expected.size());
+    expected.forEach((key, value) -> assertThat(map.get(key)).isEqualTo(value));
+    Map<Long, Long> contents = new HashMap<>();
+    map.forEach(contents::put);
+    assertThat(contents).isEqualTo(expected);
+  }
+
+  @Test
+  void keyZeroIsRejected() {
+    assertThatThrownBy(() -> new LongHashMap<String>().put(0, "value"))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  /**
+   * The first keys whose home slot in the initial table is the given one. Few enough that the table doesn't grow.
+   */
+  private static List<Long> keysWithHome(int home, int count) {
+    List<Long> keys = new ArrayList<>();
+    for (long key = 1; keys.size() < count; key++) {
+      if (homeOf(key) == home) {
+        keys.add(key);
+      }
+    }
+    return keys;
+  }
+
+  // Mirrors LongHashMap's hash, so the tests can choose keys that collide
+  private static int homeOf(long key) {
+    long hash = key * 0x9E3779B97F4A7C15L;
+    return (int) (hash ^ (hash >>> 32)) & (TABLE_SIZE - 1);
+  }
+}
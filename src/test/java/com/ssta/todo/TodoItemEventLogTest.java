@@ -0,0 +1,183 @@
+package com.ssta.todo;
+
+import com.ssta.todo.TodoItemChangedEvent.Change;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TodoItemEventLogTest {
+
+  private static final String OWNER = "owner";
+  // Large enough that a few hundred records fill a 1MB segment
+  private static final String NOTES = "n".repeat(10_000);
+
+  @TempDir
+  Path directory;
+
+  @Test
+  void reopenedLogContinuesAfterTheLastRecord() {
+    TodoItemEventLog log = open(0);
+    logStatusChanges(log, 3);
+
+    TodoItemEventLog reopened = open(0);
+    assertThat(reopened.lastSequence()).isEqualTo(3);
+    logStatusChanges(reopened, 1);
+    assertThat(sequences(reopened.tail(0))).containsExactly(1L, 2L, 3L, 4L);
+  }
+
+  @Test
+  void tornRecordIsDroppedWithEverythingAfterIt() throws IOException {
+    TodoItemEventLog log = open(0);
+    logStatusChanges(log, 3);
+    log.close();
+
+    // Flip a payload byte of the second record, as a crash part way through writing it would leave it
+    Path segment = segmentFiles().get(0);
+    byte[] bytes = Files.readAllBytes(segment);
+    ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    int second = 8 + buffer.getInt(0);
+    bytes[second + 8 + 20] ^= 1;
+    Files.write(segment, bytes);
+
+    TodoItemEventLog reopened = open(0);
+    assertThat(reopened.lastSequence()).isEqualTo(1);
+    assertThat(sequences(reopened.tail(0))).containsExactly(1L);
+
+    // New records replace the dropped ones rather than following them
+    logStatusChanges(reopened, 1);
+    assertThat(sequences(reopened.tail(0))).containsExactly(1L, 2L);
+    assertThat(sequences(open(0).tail(0))).containsExactly(1L, 2L);
+  }
+
+  @Test
+  void fullSegmentRollsOverToANewOne() throws IOException {
+    TodoItemEventLog log = open(0);
+    logCreated(log, 300);
+
+    assertThat(segmentFiles()).hasSizeGreaterThan(1);
+    List<TodoItemEventLog.Entry> entries = read(log.tail(0));
+    assertThat(entries).hasSize(300);
+    assertThat(entries).extracting(TodoItemEventLog.Entry::sequence)
+        .isSorted()
+        .startsWith(1L)
+        .endsWith(300L);
+    assertThat(entries.get(299).detailedNotes()).isEqualTo(NOTES);
+
+    TodoItemEventLog reopened = open(0);
+    assertThat(reopened.lastSequence()).isEqualTo(300);
+    assertThat(read(reopened.tail(0))).hasSize(300);
+  }
+
+  @Test
+  void tailerReadsAcrossSegments() throws IOException {
+    TodoItemEventLog log = open(0);
+    TodoItemEventLog.Tailer fromStart = log.tail(0);
+    logCreated(log, 50);
+    assertThat(read(fromStart)).hasSize(50);
+
+    // The same tailer follows the records into the segments started after it
+    logCreated(log, 250);
+    assertThat(segmentFiles()).hasSizeGreaterThan(1);
+    List<TodoItemEventLog.Entry> rest = read(fromStart);
+    assertThat(rest).extracting(TodoItemEventLog.Entry::sequence).first().isEqualTo(51L);
+    assertThat(rest).hasSize(250);
+    assertThat(fromStart.lastSequence()).isEqualTo(300);
+
+    // A tailer starting in a later segment starts from there
+    assertThat(sequences(log.tail(280))).hasSize(20).first().isEqualTo(281L);
+  }
+
+  @Test
+  void oldestSegmentsBeyondTheLimitAreDeleted() throws IOException {
+    TodoItemEventLog log = open(1);
+    logCreated(log, 300);
+
+    assertThat(segmentFiles()).hasSize(1);
+    assertThat(log.retainedAfter()).isGreaterThan(0);
+    assertThat(sequences(log.tail(0))).first().isEqualTo(log.retainedAfter() + 1);
+    assertThat(open(1).retainedAfter()).isEqualTo(log.retainedAfter());
+  }
+
+  @Test
+  void lostChangeIsRecordedAndNewChangesAreRefusedUntilASegmentCanBeStarted() throws IOException {
+    TodoItemEventLog log = open(0);
+    // Directories in place of the first two segment files stop them being created
+    Files.createDirectories(directory.resolve("events-00000000000000000001.log"));
+    Files.createDirectories(directory.resolve("events-00000000000000000002.log"));
+
+    logStatusChanges(log, 1);
+    assertThat(log.lastSequence()).isZero();
+    assertThat(log.retainedAfter()).isEqualTo(1);
+    assertThatThrownBy(() -> logStatusChanges(log, 1)).isInstanceOf(IllegalStateException.class);
+
+    Files.delete(directory.resolve("events-00000000000000000002.log"));
+    logStatusChanges(log, 1);
+    assertThat(sequences(log.tail(1))).containsExactly(2L);
+    Files.delete(directory.resolve("events-00000000000000000001.log"));
+    assertThat(open(0).retainedAfter()).isEqualTo(1);
+  }
+
+  @Test
+  void waitCompletesOnceAChangeIsLogged() {
+    TodoItemEventLog log = open(0);
+    logStatusChanges(log, 1);
+
+    assertThat(log.whenLoggedAfter(0)).isDone();
+    CompletableFuture<Void> logged = log.whenLoggedAfter(1);
+    assertThat(logged).isNotDone();
+    logStatusChanges(log, 1);
+    assertThat(logged).isCompleted();
+  }
+
+  private TodoItemEventLog open(int maxSegments) {
+    // Changes logged outside a transaction are written at once, without the entity manager
+    return new TodoItemEventLog(directory, DataSize.ofMegabytes(1), maxSegments, null);
+  }
+
+  private static void logStatusChanges(TodoItemEventLog log, int count) {
+    for (int i = 0; i < count; i++) {
+      log.onTodoItemChanged(TodoItemChangedEvent.of(OWNER,
+          Change.statusChanged(1L, TodoStatus.TODO, TodoStatus.IN_PROGRESS, LocalDate.now(), 1L)));
+    }
+  }
+
+  private static void logCreated(TodoItemEventLog log, int count) {
+    for (int i = 0; i < count; i++) {
+      TodoItem item = new TodoItem("Item " + i);
+      item.setId(i + 1L);
+      item.setOwnerId(OWNER);
+      item.setDetailedNotes(NOTES);
+      item.setVersion(0L);
+      log.onTodoItemChanged(TodoItemChangedEvent.of(OWNER, Change.created(item)));
+    }
+  }
+
+  private static List<TodoItemEventLog.Entry> read(TodoItemEventLog.Tailer tailer) {
+    List<TodoItemEventLog.Entry> entries = new ArrayList<>();
+    tailer.poll(entries::add, Integer.MAX_VALUE);
+    return entries;
+  }
+
+  private static List<Long> sequences(TodoItemEventLog.Tailer tailer) {
+    return read(tailer).stream().map(TodoItemEventLog.Entry::sequence).toList();
+  }
+
+  private List<Path> segmentFiles() throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files.sorted().toList();
+    }
+  }
+}